@@ -97,7 +97,6 @@ class VinilApiClient {
     final httpUri = Uri.parse(normalized);
 
     final wsScheme = httpUri.scheme == 'https' ? 'wss' : 'ws';
-    final wsPort = (httpUri.hasPort ? httpUri.port : 80) + 1;
     final path = '${httpUri.path}/ws'.replaceAll('//', '/');
 
     final query = <String, String>{};
@@ -108,7 +107,7 @@ class VinilApiClient {
     return Uri(
       scheme: wsScheme,
       host: httpUri.host,
-      port: wsPort,
+      port: httpUri.hasPort ? httpUri.port : null,
       path: path,
       queryParameters: query.isEmpty ? null : query,
     );
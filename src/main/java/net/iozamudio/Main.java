@@ -8,13 +8,18 @@ import net.iozamudio.application.port.in.MediaPollingUseCase;
 import net.iozamudio.application.port.in.LyricsUseCase;
 import net.iozamudio.application.port.out.MediaControlPort;
 import net.iozamudio.application.port.out.MediaInfoProviderPort;
+import net.iozamudio.application.port.out.LyricsCachePort;
 import net.iozamudio.application.port.out.LyricsProviderPort;
+import net.iozamudio.application.port.out.LyricsSearchPort;
+import net.iozamudio.application.service.LyricsPrefetchService;
 import net.iozamudio.application.service.LyricsService;
 import net.iozamudio.application.service.MediaPollingService;
 import net.iozamudio.infrastructure.media.DemoMediaInfoProviderAdapter;
 import net.iozamudio.infrastructure.media.ScriptMediaInfoProviderAdapter;
 import net.iozamudio.infrastructure.media.WindowsMediaControlAdapter;
+import net.iozamudio.infrastructure.lyrics.LocalLrcLibraryLyricsProviderAdapter;
 import net.iozamudio.infrastructure.lyrics.LrcLibLyricsProviderAdapter;
+import net.iozamudio.infrastructure.lyrics.LyricsCaches;
 import net.iozamudio.infrastructure.api.LocalApiServer;
 import net.iozamudio.ui.VinylPlayerView;
 import net.iozamudio.util.SingleInstanceManager;
@@ -23,6 +28,7 @@ import net.iozamudio.util.VolumeController;
 import net.iozamudio.util.WindowsTaskbarMediaButtons;
 import net.iozamudio.util.WindowsStartupRegistrar;
 
+import java.nio.file.Path;
 import java.util.List;
 
 public class Main extends Application {
@@ -34,6 +40,9 @@ public class Main extends Application {
     private VinylPlayerView view;
     private SystemTrayManager trayManager;
     private LocalApiServer localApiServer;
+    private LyricsPrefetchService lyricsPrefetchService;
+    private LocalLrcLibraryLyricsProviderAdapter localLrcLibrary;
+    private LyricsCachePort lyricsCache;
     private Stage primaryStage;
     private boolean demoMode = false;
     private int fadeInDurationMs = 5000;
@@ -53,13 +62,28 @@ public class Main extends Application {
             ? new DemoMediaInfoProviderAdapter()
             : new ScriptMediaInfoProviderAdapter();
         MediaControlPort controlPort = new WindowsMediaControlAdapter();
-        LyricsProviderPort lyricsProvider = new LrcLibLyricsProviderAdapter();
-        LyricsUseCase lyricsUseCase = new LyricsService(lyricsProvider);
+        lyricsCache = LyricsCaches.createDefault();
+        LyricsProviderPort lyricsProvider = new LrcLibLyricsProviderAdapter(lyricsCache);
+        List<Path> lrcDirectories = LocalLrcLibraryLyricsProviderAdapter.resolveConfiguredDirectories();
+        if (!lrcDirectories.isEmpty()) {
+            localLrcLibrary = LocalLrcLibraryLyricsProviderAdapter.createDefault(lrcDirectories, lyricsProvider);
+            localLrcLibrary.start();
+            lyricsProvider = localLrcLibrary;
+        }
+        LyricsUseCase lyricsUseCase = new LyricsService(
+            lyricsProvider,
+            lyricsCache instanceof LyricsSearchPort searchPort ? searchPort : null);
+        lyricsPrefetchService = new LyricsPrefetchService(lyricsProvider, 4, 4.0);
 
         MediaPollingService pollingService = new MediaPollingService(
             infoProvider,
             controlPort,
-            info -> view.updateMediaInfo(info),
+            info -> {
+                view.updateMediaInfo(info);
+                if (localApiServer != null) {
+                    localApiServer.notifyStateChanged();
+                }
+            },
             500);
 
         this.pollingService = pollingService;
@@ -70,11 +94,13 @@ public class Main extends Application {
         localApiServer = new LocalApiServer(
             pollingService::getLatestInfo,
             mediaControlUseCase,
-            lyricsUseCase);
+            lyricsUseCase,
+            lyricsPrefetchService);
         localApiServer.start();
 
         this.view = new VinylPlayerView(mediaControlUseCase, lyricsUseCase, this::shutdownPolling);
         view.show(stage);
+        LyricsCaches.warmUpInBackground(lyricsCache);
 
         WindowsStartupRegistrar.ensureCurrentExecutableStartsWithWindows();
 
@@ -82,7 +108,7 @@ public class Main extends Application {
         trayManager.install(stage, this::restoreMainWindow);
 
         if (singleInstanceManager != null) {
-            singleInstanceManager.startListening(() -> javafx.application.Platform.runLater(this::restoreMainWindow));
+            singleInstanceManager.startListening(this::handleInstanceRequest);
         }
 
         VolumeController.fadeInFromZeroToSystemVolume(fadeInDurationMs);
@@ -114,19 +140,45 @@ public class Main extends Application {
             localApiServer.stop();
             localApiServer = null;
         }
+        if (lyricsPrefetchService != null) {
+            lyricsPrefetchService.shutdown();
+            lyricsPrefetchService = null;
+        }
+        if (localLrcLibrary != null) {
+            localLrcLibrary.close();
+            localLrcLibrary = null;
+        }
         shutdownPolling();
+        if (lyricsCache != null) {
+            lyricsCache.close();
+            lyricsCache = null;
+        }
     }
 
     public static void main(String[] args) {
         singleInstanceManager = SingleInstanceManager.tryAcquirePrimary();
         if (singleInstanceManager == null) {
-            SingleInstanceManager.signalExistingInstanceToShow();
+            SingleInstanceManager.forwardToPrimary(args);
             return;
         }
 
         launch(args);
     }
 
+    /**
+     * Commands forwarded by a second launch; media commands run on the listener thread like API commands do.
+     */
+    private void handleInstanceRequest(SingleInstanceManager.Request request) {
+        switch (request.command()) {
+            case SHOW -> javafx.application.Platform.runLater(this::restoreMainWindow);
+            case PLAYPAUSE -> pollingService.playPause();
+            case NEXT -> pollingService.next();
+            case PREVIOUS -> pollingService.previous();
+            case SEEK -> pollingService.seekToSeconds(Double.parseDouble(request.argument()));
+            case FOCUSSOURCE -> pollingService.openCurrentInBrowser();
+        }
+    }
+
     private void restoreMainWindow() {
         if (view != null) {
             view.restoreFromTray();
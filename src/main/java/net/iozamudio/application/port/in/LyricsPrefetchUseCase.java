@@ -0,0 +1,11 @@
+package net.iozamudio.application.port.in;
+
+import net.iozamudio.model.LyricsPrefetchProgress;
+import net.iozamudio.model.TrackRef;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface LyricsPrefetchUseCase {
+    LyricsPrefetchProgress prefetch(List<TrackRef> tracks, Consumer<LyricsPrefetchProgress> onProgress);
+}
@@ -1,9 +1,12 @@
 package net.iozamudio.application.port.in;
 
 import net.iozamudio.model.LyricsLine;
+import net.iozamudio.model.LyricsSearchResult;
 
 import java.util.List;
 
 public interface LyricsUseCase {
     List<LyricsLine> getSyncedLyrics(String artist, String title);
-}
\ No newline at end of file
+
+    List<LyricsSearchResult> searchLyrics(String query, int limit);
+}
@@ -0,0 +1,28 @@
+package net.iozamudio.application.port.out;
+
+import net.iozamudio.model.LyricsLine;
+
+import java.util.List;
+
+public interface LyricsCachePort extends AutoCloseable {
+    List<LyricsLine> getCachedLyrics(String artist, String title);
+
+    boolean hasCachedLyrics(String artist, String title);
+
+    void saveLyrics(String artist, String title, List<LyricsLine> lyrics);
+
+    /**
+     * Makes the last played and up to {@code limit} most played entries fast to read.
+     * Heap-backed caches decode them into memory; mapped ones fault their pages in.
+     */
+    WarmUpResult warmUp(int limit);
+
+    /**
+     * Flushes pending writes and stops background work; called once on shutdown.
+     */
+    @Override
+    void close();
+
+    record WarmUpResult(int loadedEntries, int candidateEntries, String lastPlayed, long elapsedMs) {
+    }
+}
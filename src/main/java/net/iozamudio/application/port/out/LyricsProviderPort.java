@@ -6,4 +6,16 @@ import java.util.List;
 
 public interface LyricsProviderPort {
     List<LyricsLine> fetchSyncedLyrics(String artist, String title);
-}
\ No newline at end of file
+
+    /**
+     * Like {@link #fetchSyncedLyrics} but with at most one remote request and no retries,
+     * for callers that pace their own requests.
+     */
+    default List<LyricsLine> fetchSyncedLyricsOnce(String artist, String title) {
+        return fetchSyncedLyrics(artist, title);
+    }
+
+    default boolean hasCachedLyrics(String artist, String title) {
+        return false;
+    }
+}
@@ -0,0 +1,9 @@
+package net.iozamudio.application.port.out;
+
+import net.iozamudio.model.LyricsSearchResult;
+
+import java.util.List;
+
+public interface LyricsSearchPort {
+    List<LyricsSearchResult> searchLyrics(String query, int limit);
+}
@@ -0,0 +1,141 @@
+package net.iozamudio.application.service;
+
+import net.iozamudio.application.port.in.LyricsPrefetchUseCase;
+import net.iozamudio.application.port.out.LyricsProviderPort;
+import net.iozamudio.model.LyricsLine;
+import net.iozamudio.model.LyricsPrefetchProgress;
+import net.iozamudio.model.TrackRef;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class LyricsPrefetchService implements LyricsPrefetchUseCase {
+    private final LyricsProviderPort lyricsProvider;
+    private final ExecutorService fetchExecutor;
+    private final long minIntervalNanos;
+    private final Set<String> inFlightKeys = ConcurrentHashMap.newKeySet();
+    private long nextSlotNanos = 0;
+
+    public LyricsPrefetchService(LyricsProviderPort lyricsProvider, int maxConcurrency, double requestsPerSecond) {
+        this.lyricsProvider = lyricsProvider;
+        this.minIntervalNanos = requestsPerSecond <= 0 ? 0 : (long) (1_000_000_000L / requestsPerSecond);
+        this.fetchExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "LyricsPrefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @Override
+    public LyricsPrefetchProgress prefetch(List<TrackRef> tracks, Consumer<LyricsPrefetchProgress> onProgress) {
+        String jobId = UUID.randomUUID().toString().substring(0, 8);
+
+        Map<String, TrackRef> unique = new LinkedHashMap<>();
+        if (tracks != null) {
+            for (TrackRef track : tracks) {
+                if (track != null && !track.isEmpty()) {
+                    unique.putIfAbsent(track.key(), track);
+                }
+            }
+        }
+
+        int alreadyCached = 0;
+        int alreadyInFlight = 0;
+        Map<String, TrackRef> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, TrackRef> entry : unique.entrySet()) {
+            TrackRef track = entry.getValue();
+            if (lyricsProvider.hasCachedLyrics(track.artist(), track.title())) {
+                alreadyCached++;
+            } else if (!inFlightKeys.add(entry.getKey())) {
+                // Another job is fetching it; this one does not wait for that result.
+                alreadyInFlight++;
+            } else {
+                pending.put(entry.getKey(), track);
+            }
+        }
+
+        int total = unique.size();
+        int skipped = alreadyCached + alreadyInFlight;
+        AtomicInteger completed = new AtomicInteger(skipped);
+        AtomicInteger fetched = new AtomicInteger();
+        AtomicInteger notFound = new AtomicInteger();
+        int cachedCount = alreadyCached;
+        int inFlightCount = alreadyInFlight;
+
+        LyricsPrefetchProgress initial = new LyricsPrefetchProgress(
+                jobId, total, skipped, 0, alreadyCached, alreadyInFlight, 0, pending.isEmpty());
+        if (pending.isEmpty()) {
+            return initial;
+        }
+
+        System.out.println("Lyrics prefetch " + jobId + ": " + pending.size() + " to fetch, " + alreadyCached
+                + " already cached, " + alreadyInFlight + " already in flight");
+        for (Map.Entry<String, TrackRef> entry : pending.entrySet()) {
+            TrackRef track = entry.getValue();
+            fetchExecutor.submit(() -> {
+                try {
+                    // One rate slot per track buys exactly one provider request: no provider-side retries.
+                    awaitRateSlot();
+                    List<LyricsLine> lyrics = lyricsProvider.fetchSyncedLyricsOnce(track.artist(), track.title());
+                    if (lyrics == null || lyrics.isEmpty()) {
+                        notFound.incrementAndGet();
+                    } else {
+                        fetched.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    notFound.incrementAndGet();
+                } catch (Exception e) {
+                    System.err.println("Lyrics prefetch failed: " + track.artist() + " - " + track.title() + ": " + e.getMessage());
+                    notFound.incrementAndGet();
+                } finally {
+                    inFlightKeys.remove(entry.getKey());
+                    int done = completed.incrementAndGet();
+                    LyricsPrefetchProgress progress = new LyricsPrefetchProgress(
+                            jobId, total, done, fetched.get(), cachedCount, inFlightCount, notFound.get(), done >= total);
+                    if (progress.done()) {
+                        System.out.println("Lyrics prefetch " + jobId + " finished: " + progress.fetched() + " fetched, "
+                                + progress.notFound() + " not found");
+                    }
+                    if (onProgress != null) {
+                        onProgress.accept(progress);
+                    }
+                }
+            });
+        }
+
+        return initial;
+    }
+
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    private void awaitRateSlot() throws InterruptedException {
+        if (minIntervalNanos <= 0) {
+            return;
+        }
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + minIntervalNanos;
+            waitNanos = slot - now;
+        }
+
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
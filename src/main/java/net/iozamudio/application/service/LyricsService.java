@@ -2,15 +2,23 @@ package net.iozamudio.application.service;
 
 import net.iozamudio.application.port.in.LyricsUseCase;
 import net.iozamudio.application.port.out.LyricsProviderPort;
+import net.iozamudio.application.port.out.LyricsSearchPort;
 import net.iozamudio.model.LyricsLine;
+import net.iozamudio.model.LyricsSearchResult;
 
 import java.util.List;
 
 public class LyricsService implements LyricsUseCase {
     private final LyricsProviderPort lyricsProvider;
+    private final LyricsSearchPort lyricsSearch;
 
     public LyricsService(LyricsProviderPort lyricsProvider) {
+        this(lyricsProvider, null);
+    }
+
+    public LyricsService(LyricsProviderPort lyricsProvider, LyricsSearchPort lyricsSearch) {
         this.lyricsProvider = lyricsProvider;
+        this.lyricsSearch = lyricsSearch;
     }
 
     @Override
@@ -21,4 +29,13 @@ public class LyricsService implements LyricsUseCase {
 
         return lyricsProvider.fetchSyncedLyrics(artist, title);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<LyricsSearchResult> searchLyrics(String query, int limit) {
+        if (lyricsSearch == null || query == null || query.isBlank() || limit <= 0) {
+            return List.of();
+        }
+
+        return lyricsSearch.searchLyrics(query, limit);
+    }
+}
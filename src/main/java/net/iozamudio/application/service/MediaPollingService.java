@@ -6,10 +6,18 @@ import net.iozamudio.application.port.out.MediaControlPort;
 import net.iozamudio.application.port.out.MediaInfoProviderPort;
 import net.iozamudio.application.port.out.MediaInfoSubscriptionPort;
 import net.iozamudio.model.MediaInfo;
+import net.iozamudio.util.Metrics;
 
 import java.util.function.Consumer;
 
 public class MediaPollingService extends Thread implements MediaPollingUseCase, MediaControlUseCase {
+    private static final Metrics.Histogram POLL_DURATION = Metrics.histogram("media_poll_duration_ms",
+            "Time to read the current media info in polling mode", Metrics.LATENCY_MS_BUCKETS);
+    private static final Metrics.Counter POLL_ERRORS = Metrics.counter("media_poll_errors_total",
+            "Failed media info reads or subscriptions");
+    private static final Metrics.Counter UPDATES = Metrics.counter("media_updates_total",
+            "Media info updates dispatched to the application");
+
     private final MediaInfoProviderPort mediaInfoProvider;
     private final MediaControlPort mediaControl;
     private final Consumer<MediaInfo> onMediaUpdate;
@@ -50,6 +58,7 @@ public class MediaPollingService extends Thread implements MediaPollingUseCase,
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } catch (Exception e) {
+            POLL_ERRORS.inc();
             System.err.println("Error subscribing media info: " + e.getMessage());
             onMediaUpdate.accept(new MediaInfo("", "", "STOPPED", ""));
         } finally {
@@ -60,13 +69,16 @@ public class MediaPollingService extends Thread implements MediaPollingUseCase,
     private void runPollingMode() {
         while (running) {
             try {
+                long startedAt = System.nanoTime();
                 MediaInfo info = mediaInfoProvider.getCurrent();
+                POLL_DURATION.observeSince(startedAt);
                 dispatchMediaInfo(info);
                 Thread.sleep(pollIntervalMs);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
             } catch (Exception e) {
+                POLL_ERRORS.inc();
                 System.err.println("Error fetching media info: " + e.getMessage());
                 onMediaUpdate.accept(new MediaInfo("", "", "STOPPED", ""));
             }
@@ -106,6 +118,7 @@ public class MediaPollingService extends Thread implements MediaPollingUseCase,
 
     private void dispatchMediaInfo(MediaInfo info) {
         latestInfo = info;
+        UPDATES.inc();
         onMediaUpdate.accept(info);
     }
 
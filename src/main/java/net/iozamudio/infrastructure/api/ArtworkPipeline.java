@@ -0,0 +1,278 @@
+package net.iozamudio.infrastructure.api;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Renders each new cover once, in the background, into every configured size and encoding.
+ * Lookups only read what is already rendered, so requests never wait for image work.
+ */
+final class ArtworkPipeline {
+    static final String JPEG = "jpeg";
+    static final String PNG = "png";
+    private static final float JPEG_QUALITY = 0.88f;
+
+    private final List<Integer> sizes;
+    private final List<String> formats;
+    private final ContentStore variants;
+    private final Consumer<String> onReady;
+    private final ExecutorService worker;
+    private final String hdFormat;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Set<String> unreadable = Collections.newSetFromMap(boundedLru(64));
+    private final Map<String, String> hdBase64ByHash = boundedLru(8);
+
+    ArtworkPipeline(List<Integer> sizes, List<String> formats, ContentStore variants, Consumer<String> onReady) {
+        List<Integer> sortedSizes = new ArrayList<>(sizes);
+        Collections.sort(sortedSizes);
+        this.sizes = List.copyOf(sortedSizes);
+        this.formats = List.copyOf(formats);
+        this.hdFormat = formats.contains(PNG) ? PNG : formats.get(0);
+        this.variants = variants;
+        this.onReady = onReady;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ArtworkPipeline");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Parses a list like {@code "64,256,640"}; falls back to {@code defaults} when nothing valid remains.
+     */
+    static List<Integer> parseSizes(String raw, List<Integer> defaults) {
+        List<Integer> parsed = new ArrayList<>();
+        for (String part : raw == null ? new String[0] : raw.split(",")) {
+            try {
+                int size = Integer.parseInt(part.trim());
+                if (size >= 16 && size <= 2048 && !parsed.contains(size)) {
+                    parsed.add(size);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return parsed.isEmpty() ? defaults : parsed;
+    }
+
+    static List<String> parseFormats(String raw, List<String> defaults) {
+        List<String> parsed = new ArrayList<>();
+        for (String part : raw == null ? new String[0] : raw.split(",")) {
+            String format = normalizeFormat(part);
+            if (format != null && !parsed.contains(format)) {
+                parsed.add(format);
+            }
+        }
+        return parsed.isEmpty() ? defaults : parsed;
+    }
+
+    static String normalizeFormat(String raw) {
+        String format = raw == null ? "" : raw.trim().toLowerCase(Locale.ROOT);
+        return switch (format) {
+            case "jpg", "jpeg" -> JPEG;
+            case "png" -> PNG;
+            default -> null;
+        };
+    }
+
+    List<Integer> sizes() {
+        return sizes;
+    }
+
+    List<String> formats() {
+        return formats;
+    }
+
+    int largestSize() {
+        return sizes.get(sizes.size() - 1);
+    }
+
+    /**
+     * Queues a cover for rendering unless a render is already pending or every variant is still stored.
+     * A cover whose variants were evicted is rendered again.
+     */
+    void submit(String hash, byte[] original) {
+        if (unreadable.contains(hash) || isRendered(hash) || !pending.add(hash)) {
+            return;
+        }
+
+        try {
+            worker.execute(() -> {
+                try {
+                    render(hash, original);
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(hash);
+        }
+    }
+
+    ContentStore.Content find(String hash, int size, String format) {
+        return variants.get(variantKey(hash, size, format));
+    }
+
+    /**
+     * The closest rendered variant at or above {@code size}, else the largest smaller one; {@code null} if none is ready.
+     */
+    ContentStore.Content nearest(String hash, int size, String format) {
+        ContentStore.Content fallback = null;
+        for (int candidate : sizes) {
+            ContentStore.Content content = find(hash, candidate, format);
+            if (content == null) {
+                continue;
+            }
+            if (candidate >= size) {
+                return content;
+            }
+            fallback = content;
+        }
+        return fallback;
+    }
+
+    /**
+     * Base64 of the largest rendered variant for inline payloads, or {@code null} while it is pending
+     * or after it was evicted. Only the encoding is cached here; the variant store decides what is kept.
+     */
+    String hdBase64(String hash) {
+        if (hash == null) {
+            return null;
+        }
+
+        String cached = hdBase64ByHash.get(hash);
+        if (cached != null) {
+            return cached;
+        }
+        ContentStore.Content hd = find(hash, largestSize(), hdFormat);
+        if (hd == null) {
+            return null;
+        }
+        String encoded = Base64.getEncoder().encodeToString(hd.bytes());
+        hdBase64ByHash.put(hash, encoded);
+        return encoded;
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void render(String hash, byte[] original) {
+        long startedAt = System.nanoTime();
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+            if (source == null) {
+                unreadable.add(hash);
+                return;
+            }
+
+            // Largest first so the inline HD payload is available as early as possible.
+            for (int i = sizes.size() - 1; i >= 0; i--) {
+                int size = sizes.get(i);
+                BufferedImage scaled = scaleToShortSide(source, size);
+                for (String format : formats) {
+                    byte[] encoded = encode(scaled, format);
+                    variants.put(variantKey(hash, size, format), encoded, ContentStore.imageContentType(encoded));
+                    if (size == largestSize() && format.equals(hdFormat)) {
+                        hdBase64ByHash.put(hash, Base64.getEncoder().encodeToString(encoded));
+                        onReady.accept(hash);
+                    }
+                }
+            }
+
+            System.out.println("Artwork " + hash + " rendered in " + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            unreadable.add(hash);
+            System.err.println("Artwork rendering failed for " + hash + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isRendered(String hash) {
+        for (int size : sizes) {
+            for (String format : formats) {
+                if (find(hash, size, format) == null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static <V> Map<String, V> boundedLru(int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    private static String variantKey(String hash, int size, String format) {
+        return hash + "-" + size + "-" + format;
+    }
+
+    private static BufferedImage scaleToShortSide(BufferedImage source, int size) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = (double) size / Math.max(1, Math.min(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage output = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = output.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        graphics.dispose();
+        return output;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (PNG.equals(format)) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+
+        // JPEG has no alpha channel.
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+}
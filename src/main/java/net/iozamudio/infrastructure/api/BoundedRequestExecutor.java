@@ -0,0 +1,171 @@
+package net.iozamudio.infrastructure.api;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor for the local API with a fixed number of workers and a bounded backlog.
+ * Exchanges that arrive while the backlog is full are not queued: they run on a single
+ * shedding thread where {@link #isShedding()} is true, so filters can answer 503 at once.
+ */
+final class BoundedRequestExecutor implements Executor {
+    private static final ThreadLocal<Boolean> SHEDDING = new ThreadLocal<>();
+
+    private final int maxConcurrency;
+    private final int queueLimit;
+    private final boolean virtualThreads;
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private final ExecutorService shedder;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder totalServiceNanos = new LongAdder();
+    private final AtomicLong maxServiceNanos = new AtomicLong();
+
+    BoundedRequestExecutor(int maxConcurrency, int queueLimit, boolean preferVirtualThreads) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.queueLimit = Math.max(0, queueLimit);
+
+        ExecutorService virtualExecutor = preferVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtualExecutor != null;
+        if (virtualThreads) {
+            // One virtual thread per exchange; the semaphore bounds how many run handlers at once.
+            this.workers = virtualExecutor;
+            this.permits = new Semaphore(this.maxConcurrency);
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(this.maxConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "LocalApiHttp-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.permits = null;
+        }
+
+        this.shedder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LocalApiShed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * True while the current thread is running an exchange that was shed because the backlog was full.
+     */
+    static boolean isShedding() {
+        return Boolean.TRUE.equals(SHEDDING.get());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        // Admitted exchanges count from enqueue to completion: the running ones plus the backlog.
+        if (admitted.incrementAndGet() > maxConcurrency + queueLimit) {
+            admitted.decrementAndGet();
+            shed.increment();
+            shedder.execute(() -> {
+                SHEDDING.set(Boolean.TRUE);
+                try {
+                    task.run();
+                } finally {
+                    SHEDDING.remove();
+                }
+            });
+            return;
+        }
+
+        workers.execute(() -> runAdmitted(task, enqueuedAt));
+    }
+
+    Stats stats() {
+        long done = completed.sum();
+        return new Stats(
+                virtualThreads ? "virtual" : "platform",
+                maxConcurrency,
+                queueLimit,
+                active.get(),
+                Math.max(0, admitted.get() - active.get()),
+                done,
+                shed.sum(),
+                done == 0 ? 0 : totalWaitNanos.sum() / done / 1_000_000.0,
+                maxWaitNanos.get() / 1_000_000.0,
+                done == 0 ? 0 : totalServiceNanos.sum() / done / 1_000_000.0,
+                maxServiceNanos.get() / 1_000_000.0);
+    }
+
+    void shutdown() {
+        workers.shutdownNow();
+        shedder.shutdownNow();
+    }
+
+    private void runAdmitted(Runnable task, long enqueuedAt) {
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                admitted.decrementAndGet();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        active.incrementAndGet();
+        long startedAt = System.nanoTime();
+        recordMax(maxWaitNanos, startedAt - enqueuedAt);
+        totalWaitNanos.add(startedAt - enqueuedAt);
+        try {
+            task.run();
+        } finally {
+            long serviceNanos = System.nanoTime() - startedAt;
+            totalServiceNanos.add(serviceNanos);
+            recordMax(maxServiceNanos, serviceNanos);
+            completed.increment();
+            active.decrementAndGet();
+            admitted.decrementAndGet();
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private static void recordMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry until the larger value sticks
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Virtual threads are not available on this JVM, using platform threads for the local API");
+            return null;
+        }
+    }
+
+    record Stats(
+            String threads,
+            int maxConcurrency,
+            int queueLimit,
+            int active,
+            int queued,
+            long completed,
+            long shed,
+            double avgWaitMs,
+            double maxWaitMs,
+            double avgServiceMs,
+            double maxServiceMs) {
+    }
+}
@@ -0,0 +1,81 @@
+package net.iozamudio.infrastructure.api;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Small LRU of immutable blobs addressed by the hash of their content, served with strong ETags.
+ */
+final class ContentStore {
+    private final int capacity;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Content> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    ContentStore(int capacity) {
+        this(capacity, Long.MAX_VALUE);
+    }
+
+    /**
+     * Evicts least recently used entries beyond {@code capacity} entries or {@code maxBytes} in total.
+     */
+    ContentStore(int capacity, long maxBytes) {
+        this.capacity = Math.max(1, capacity);
+        this.maxBytes = maxBytes;
+    }
+
+    Content get(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    void put(String key, byte[] bytes, String contentType) {
+        synchronized (entries) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+
+            entries.put(key, new Content(bytes, contentType, "\"" + key + "\""));
+            totalBytes += bytes.length;
+
+            Iterator<Content> eldest = entries.values().iterator();
+            while (entries.size() > 1 && (entries.size() > capacity || totalBytes > maxBytes)) {
+                totalBytes -= eldest.next().bytes().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * First 128 bits of the SHA-256 of {@code bytes}, hex encoded.
+     */
+    static String hashOf(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String imageContentType(byte[] bytes) {
+        if (bytes.length >= 4 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return "image/png";
+        }
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8) {
+            return "image/jpeg";
+        }
+        return "application/octet-stream";
+    }
+
+    record Content(byte[] bytes, String contentType, String etag) {
+    }
+}
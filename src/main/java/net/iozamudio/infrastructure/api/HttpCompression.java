@@ -0,0 +1,72 @@
+package net.iozamudio.infrastructure.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@code Accept-Encoding} negotiation and compression for JSON responses.
+ */
+final class HttpCompression {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    /** Below this size the headers cost more than compression saves. */
+    static final int MIN_COMPRESS_BYTES = 1024;
+
+    private HttpCompression() {
+    }
+
+    /**
+     * Picks gzip, then deflate, from an {@code Accept-Encoding} header; {@code null} means identity.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            if (isRejected(tokens)) {
+                continue;
+            }
+
+            if (GZIP.equals(coding) || "*".equals(coding)) {
+                gzip = true;
+            } else if (DEFLATE.equals(coding)) {
+                deflate = true;
+            }
+        }
+        return gzip ? GZIP : deflate ? DEFLATE : null;
+    }
+
+    static byte[] compress(byte[] data, String encoding) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (OutputStream out = GZIP.equals(encoding) ? new GZIPOutputStream(buffer) : new DeflaterOutputStream(buffer)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static boolean isRejected(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String parameter = tokens[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim()) <= 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
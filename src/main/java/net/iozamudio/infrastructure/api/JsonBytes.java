@@ -0,0 +1,41 @@
+package net.iozamudio.infrastructure.api;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers to splice already-encoded JSON fragments without re-serializing them.
+ */
+final class JsonBytes {
+    static final byte[] CLOSE_OBJECT = {'}'};
+
+    private JsonBytes() {
+    }
+
+    static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    /**
+     * Appends {@code "name": rawValue} to an encoded JSON object such as {@code {"type":"state"}}.
+     */
+    static byte[] withRawField(String objectJson, String name, byte[] rawValue) {
+        int closing = objectJson.lastIndexOf('}');
+        String head = objectJson.substring(0, closing);
+        String separator = head.trim().endsWith("{") ? "" : ",";
+        return concat(
+                (head + separator + "\"" + name + "\":").getBytes(StandardCharsets.UTF_8),
+                rawValue,
+                CLOSE_OBJECT);
+    }
+}
@@ -2,71 +2,153 @@ package net.iozamudio.infrastructure.api;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import net.iozamudio.util.ActiveMusicSource;
+import net.iozamudio.util.Metrics;
+import net.iozamudio.application.port.in.LyricsPrefetchUseCase;
 import net.iozamudio.application.port.in.LyricsUseCase;
 import net.iozamudio.model.LyricsLine;
+import net.iozamudio.model.LyricsPrefetchProgress;
+import net.iozamudio.model.LyricsSearchResult;
+import net.iozamudio.model.TrackRef;
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
 import net.iozamudio.application.port.in.MediaControlUseCase;
 import net.iozamudio.model.MediaInfo;
 
-import javax.imageio.ImageIO;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
 import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 public class LocalApiServer {
     private static final String API_PREFIX = "/api/v1";
+    private static final int MAX_PREFETCH_TRACKS = 2000;
+    private static final long FRAME_REUSE_MS = 100;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final int MAX_STATE_WAIT_MS = 30_000;
+    private static final int MAX_PARKED_STATE_REQUESTS = 512;
+    private static final long PARKED_STATE_SWEEP_MS = 100;
+    private static final int SSE_HISTORY_SIZE = 64;
+    private static final int DELTA_JOURNAL_SIZE = 256;
+    private static final int WS_DEFLATE_THRESHOLD = 512;
+    private static final long SSE_HEARTBEAT_SECONDS = 15;
+    private static final long WS_MIN_BACKOFF_MS = 250;
+    private static final long WS_MIN_BROADCAST_DELAY_MS = 5;
+    private static final long WS_MAX_BACKOFF_MS = 4_000;
+    private static final Set<String> CONTROL_ACTIONS = Set.of("playpause", "next", "previous", "focussource", "seek");
+    private static final String CONTROL_METRIC = "control_commands_total";
+    private static final String CONTROL_METRIC_HELP = "Control commands from /control and the state socket by action and result";
+    private static final Metrics.Histogram PUBLISH_LATENCY = Metrics.histogram("state_publish_latency_ms",
+        "Time from building a new snapshot to handing it to the WebSocket clients", Metrics.LATENCY_MS_BUCKETS);
 
     private final HttpServer server;
     private final Gson gson;
     private final Supplier<MediaInfo> stateSupplier;
     private final MediaControlUseCase mediaControl;
     private final LyricsUseCase lyricsUseCase;
+    private final LyricsPrefetchUseCase lyricsPrefetch;
     private final String apiToken;
     private final long startedAtMs;
-    private final StateWebSocketServer wsServer;
+    private final StateSocket stateSocket = new StateSocket();
+    private final StateWebSocketServer legacyWsServer;
     private final ScheduledExecutorService wsBroadcastExecutor;
+    private final BoundedRequestExecutor httpExecutor;
+    private final Map<String, RouteGuard> routeGuards = new LinkedHashMap<>();
+    private final TokenBucketRateLimiter controlRateLimiter;
     private final int wsPort;
-    private volatile String thumbnailHdCacheKey = "";
-    private volatile String thumbnailHdCacheValue = "";
-    private volatile String lyricsCacheTrackKey = "";
-    private volatile List<LyricsLine> lyricsCache = List.of();
-    private volatile String playbackStatusCache = "STOPPED";
-    private volatile double playbackBasePosition = 0;
-    private volatile double playbackBaseDuration = 0;
-    private volatile long playbackBaseCapturedAtMs = 0;
-    private volatile double lastReportedRawPosition = -1;
+    private final Path localSocketPath;
+    private volatile String artworkHashCacheKey = "";
+    private volatile String artworkHashCacheValue;
+    private final ContentStore artworkStore = new ContentStore(16, 8L * 1024 * 1024);
+    private final ArtworkPipeline artworkPipeline;
+    private final ContentStore lyricsStore = new ContentStore(64);
+    private final ExecutorService lyricsExecutor;
+    private final Object lyricsLock = new Object();
+    private volatile LyricsState lyricsState = LyricsState.NONE;
+    private final Object snapshotLock = new Object();
+    private final AtomicLong snapshotVersion = new AtomicLong();
+    private volatile PlaybackStateSnapshot currentSnapshot;
+    private volatile StateFrame currentFrame;
+    private volatile long snapshotBuiltAtNanos;
+    private final Object deltaLock = new Object();
+    private long deltaSeq;
+    private StateFrame deltaBaseFrame;
+    private final StateJournal deltaJournal = new StateJournal(DELTA_JOURNAL_SIZE);
+    private final String deltaStreamId;
+    private final Queue<ParkedStateRequest> parkedStateRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger parkedStateRequestCount = new AtomicInteger();
+    private final long wsStallTimeoutMs;
+    private final long wsHeartbeatMs;
+    private ScheduledFuture<?> nextBroadcast;
+    private long broadcastVersion = -1;
+    private final LongAdder wsFramesSent = new LongAdder();
+    private final LongAdder wsFramesDropped = new LongAdder();
+    private final LongAdder wsSlowDisconnects = new LongAdder();
+    private final StateEventStream stateEvents = new StateEventStream(SSE_HISTORY_SIZE);
 
     public LocalApiServer(Supplier<MediaInfo> stateSupplier, MediaControlUseCase mediaControl, LyricsUseCase lyricsUseCase) {
+        this(stateSupplier, mediaControl, lyricsUseCase, null);
+    }
+
+    public LocalApiServer(
+            Supplier<MediaInfo> stateSupplier,
+            MediaControlUseCase mediaControl,
+            LyricsUseCase lyricsUseCase,
+            LyricsPrefetchUseCase lyricsPrefetch) {
         this.gson = new Gson();
         this.stateSupplier = stateSupplier;
         this.mediaControl = mediaControl;
         this.lyricsUseCase = lyricsUseCase;
+        this.lyricsPrefetch = lyricsPrefetch;
         this.startedAtMs = System.currentTimeMillis();
+        this.deltaStreamId = Long.toString(startedAtMs, 36);
 
         String configuredToken = System.getProperty("vinil.api.token", "token-prueba").trim();
         this.apiToken = configuredToken.isEmpty()
@@ -75,41 +157,195 @@ public class LocalApiServer {
 
         String host = resolveHost();
         int port = resolvePort();
-        this.wsPort = resolveWsPort(port);
+        boolean singlePort = !"false".equalsIgnoreCase(System.getProperty("vinil.api.singlePort", "true").trim());
+        this.wsPort = singlePort ? port : resolveWsPort(port);
+        // Installed mobile builds still dial port + 1, so the single-port layout keeps that listener for one
+        // more release; vinil.api.ws.legacyPort=false drops it.
+        boolean legacyWsPort = !singlePort
+            || !"false".equalsIgnoreCase(System.getProperty("vinil.api.ws.legacyPort", "true").trim());
 
         try {
-            this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            if (singlePort) {
+                NioHttpServer nioServer = new NioHttpServer(new InetSocketAddress(host, port), resolvePositiveIntProperty("vinil.api.selectors", 2));
+                nioServer.setWebSocketEndpoint(API_PREFIX + "/ws", List.of(new Draft_6455(new StateDeflateExtension())), stateSocket);
+                this.localSocketPath = bindLocalSocket(nioServer, resolveLocalSocketPath());
+                this.server = nioServer;
+            } else {
+                this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+                this.localSocketPath = null;
+            }
         } catch (IOException e) {
             throw new IllegalStateException("Cannot start local API server", e);
         }
 
-        this.wsServer = new StateWebSocketServer(host, wsPort);
+        // Separate Java-WebSocket server on port + 1: the only socket in the legacy layout, a deprecated
+        // second entry point next to the single port otherwise.
+        this.legacyWsServer = legacyWsPort ? new StateWebSocketServer(host, resolveWsPort(port)) : null;
         this.wsBroadcastExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.lyricsExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LocalApiLyrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        createContext("/health", new HealthHandler(), 2);
+        createContext("/metrics", new MetricsHandler(), 2);
+        createContext("/state", new StateHandler(), 8);
+        createContext("/state/stream", new StateStreamHandler(), 4);
+        createContext("/control", new ControlHandler(), 4);
+        createContext("/lyrics/prefetch", new LyricsPrefetchHandler(), 2);
+        createContext("/lyrics/search", new LyricsSearchHandler(), 4);
+        createContext("/lyrics/", new LyricsContentHandler(), 4);
+        createContext("/artwork/", new ArtworkHandler(), 4);
+        this.artworkPipeline = new ArtworkPipeline(
+            ArtworkPipeline.parseSizes(System.getProperty("vinil.api.artwork.sizes"), List.of(64, 256, 640)),
+            ArtworkPipeline.parseFormats(System.getProperty("vinil.api.artwork.formats"), List.of(ArtworkPipeline.JPEG, ArtworkPipeline.PNG)),
+            new ContentStore(256, 32L * 1024 * 1024),
+            hash -> notifyStateChanged());
+        this.controlRateLimiter = new TokenBucketRateLimiter(
+            resolvePositiveDoubleProperty("vinil.api.control.rate", 5.0),
+            resolvePositiveIntProperty("vinil.api.control.burst", 10));
+        this.wsStallTimeoutMs = resolvePositiveIntProperty("vinil.api.ws.stallSeconds", 30) * 1000L;
+        this.wsHeartbeatMs = resolvePositiveIntProperty("vinil.api.ws.heartbeatMs", 1000);
+        this.httpExecutor = new BoundedRequestExecutor(
+            resolvePositiveIntProperty("vinil.api.threads", 16),
+            resolvePositiveIntProperty("vinil.api.queue", 64),
+            Boolean.getBoolean("vinil.api.virtualThreads"));
+        this.server.setExecutor(httpExecutor);
+        registerMetrics();
+    }
 
-        this.server.createContext(API_PREFIX + "/health", new HealthHandler());
-        this.server.createContext(API_PREFIX + "/state", new StateHandler());
-        this.server.createContext(API_PREFIX + "/control", new ControlHandler());
-        this.server.setExecutor(Executors.newCachedThreadPool());
+    /**
+     * Gauges and totals that are already tracked by the server; read only when {@code /metrics} is scraped.
+     */
+    private void registerMetrics() {
+        Metrics.gauge("state_stream_clients_current", "Connected real-time state clients", stateSocket::connectionCount, "transport", "websocket");
+        Metrics.gauge("state_stream_clients_current", "Connected real-time state clients", stateEvents::subscriberCount, "transport", "sse");
+        Metrics.counterFunction("state_socket_frames_total", "State frames sent to or dropped for WebSocket clients", wsFramesSent::sum, "outcome", "sent");
+        Metrics.counterFunction("state_socket_frames_total", "State frames sent to or dropped for WebSocket clients", wsFramesDropped::sum, "outcome", "dropped");
+        Metrics.counterFunction("state_socket_slow_disconnects_total", "WebSocket clients closed for not draining their queue", wsSlowDisconnects::sum);
+        Metrics.counterFunction("state_stream_slow_disconnects_total", "SSE clients closed for not draining their stream", stateEvents::slowDisconnectCount);
+        Metrics.gauge("state_snapshot_version", "Version of the current state snapshot", snapshotVersion::get);
+        Metrics.gauge("api_executor_active", "Local API exchanges running a handler", () -> httpExecutor.stats().active());
+        Metrics.gauge("api_executor_queued", "Local API exchanges waiting for a worker", () -> httpExecutor.stats().queued());
+        Metrics.counterFunction("api_executor_shed_total", "Local API exchanges shed because the backlog was full", () -> httpExecutor.stats().shed());
+        Metrics.counterFunction("control_rate_limit_decisions_total", "Control rate limiter decisions", () -> controlRateLimiter.stats().allowed(), "decision", "allowed");
+        Metrics.counterFunction("control_rate_limit_decisions_total", "Control rate limiter decisions", () -> controlRateLimiter.stats().rejected(), "decision", "rejected");
+        Metrics.gauge("process_uptime_seconds", "Seconds since the local API started", () -> (System.currentTimeMillis() - startedAtMs) / 1000.0);
+        Metrics.gauge("jvm_memory_heap_used_bytes", "Used heap", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        Metrics.gauge("jvm_threads_current", "Live JVM threads", () -> Thread.activeCount());
     }
 
     public void start() {
         server.start();
-        wsServer.start();
-        wsBroadcastExecutor.scheduleAtFixedRate(this::pushStateToWebSocketClients, 0, 250, TimeUnit.MILLISECONDS);
+        if (legacyWsServer != null) {
+            legacyWsServer.start();
+        }
+        wsBroadcastExecutor.execute(this::broadcastNow);
+        wsBroadcastExecutor.scheduleAtFixedRate(this::sweepParkedStateRequests, PARKED_STATE_SWEEP_MS, PARKED_STATE_SWEEP_MS, TimeUnit.MILLISECONDS);
+        wsBroadcastExecutor.scheduleAtFixedRate(this::refreshForStreamSubscribers, 250, 250, TimeUnit.MILLISECONDS);
+        wsBroadcastExecutor.scheduleAtFixedRate(stateEvents::heartbeat, SSE_HEARTBEAT_SECONDS, SSE_HEARTBEAT_SECONDS, TimeUnit.SECONDS);
 
         InetSocketAddress address = server.getAddress();
         System.out.println("Local API listening at http://" + address.getHostString() + ":" + address.getPort() + API_PREFIX);
         System.out.println("Local API websocket at ws://" + normalizeHostForLog(address.getHostString()) + ":" + wsPort + API_PREFIX + "/ws");
+        if (legacyWsServer != null && legacyWsServer.getPort() != wsPort) {
+            System.out.println("Local API legacy websocket at ws://" + normalizeHostForLog(address.getHostString()) + ":"
+                + legacyWsServer.getPort() + API_PREFIX + "/ws (deprecated)");
+        }
+        if (localSocketPath != null) {
+            System.out.println("Local API socket at unix:" + localSocketPath);
+        }
         System.out.println("Local API control token: " + apiToken);
     }
 
     public void stop() {
         server.stop(0);
+        httpExecutor.shutdown();
+        artworkPipeline.shutdown();
+        lyricsExecutor.shutdownNow();
         wsBroadcastExecutor.shutdownNow();
-        try {
-            wsServer.stop(1000);
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
+        stateEvents.close();
+        if (legacyWsServer != null) {
+            try {
+                legacyWsServer.stop(1000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void createContext(String route, HttpHandler handler, int maxConcurrent) {
+        RouteGuard guard = new RouteGuard(route, maxConcurrent);
+        routeGuards.put(route, guard);
+        server.createContext(API_PREFIX + route, handler).getFilters().add(guard);
+    }
+
+    /**
+     * Caps concurrent exchanges per route and answers 503 + Retry-After when the route or the
+     * executor backlog is saturated, so one busy endpoint cannot take every worker.
+     */
+    private class RouteGuard extends Filter {
+        private final String route;
+        private final int maxConcurrent;
+        private final Semaphore permits;
+        private final LongAdder served = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalServiceNanos = new LongAdder();
+        private final Metrics.Histogram duration;
+
+        RouteGuard(String route, int maxConcurrent) {
+            this.route = route;
+            this.maxConcurrent = maxConcurrent;
+            this.permits = new Semaphore(maxConcurrent);
+            this.duration = Metrics.histogram("api_request_duration_ms", "Time spent in local API handlers",
+                Metrics.LATENCY_MS_BUCKETS, "route", route);
+        }
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            if (BoundedRequestExecutor.isShedding() || !permits.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "overloaded", "Server is busy, retry shortly");
+                countRequest(503);
+                return;
+            }
+
+            long startedAt = System.nanoTime();
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                permits.release();
+                served.increment();
+                totalServiceNanos.add(System.nanoTime() - startedAt);
+                duration.observeSince(startedAt);
+                countRequest(exchange.getResponseCode());
+            }
+        }
+
+        /**
+         * Parked long-polls leave the handler before answering; they are counted as {@code async}.
+         */
+        private void countRequest(int status) {
+            Metrics.counter("api_requests_total", "Local API requests by route and status",
+                "route", route, "status", status < 0 ? "async" : Integer.toString(status)).inc();
+        }
+
+        @Override
+        public String description() {
+            return "Per-route concurrency cap";
+        }
+
+        Map<String, Object> stats() {
+            long count = served.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxConcurrent", maxConcurrent);
+            stats.put("inFlight", maxConcurrent - permits.availablePermits());
+            stats.put("served", count);
+            stats.put("rejected", rejected.sum());
+            stats.put("avgServiceMs", count == 0 ? 0 : totalServiceNanos.sum() / count / 1_000_000.0);
+            return stats;
         }
     }
 
@@ -126,11 +362,36 @@ public class LocalApiServer {
             payload.put("version", resolveAppVersion());
             payload.put("uptimeMs", System.currentTimeMillis() - startedAtMs);
             payload.put("timestamp", Instant.now().toString());
+            payload.put("executor", httpExecutor.stats());
+
+            Map<String, Object> routes = new LinkedHashMap<>();
+            routeGuards.forEach((route, guard) -> routes.put(route, guard.stats()));
+            payload.put("routes", routes);
+            payload.put("rateLimit", Map.of("control", controlRateLimiter.stats()));
+            payload.put("webSocket", webSocketStats());
 
             sendJson(exchange, 200, payload);
         }
     }
 
+    private class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "GET");
+                return;
+            }
+
+            byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            headers.set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        }
+    }
+
     private class StateHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -139,7 +400,88 @@ public class LocalApiServer {
                 return;
             }
 
-            sendJson(exchange, 200, buildStatePayload());
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean inline = !"false".equalsIgnoreCase(query.get("inline"));
+
+            int waitMs = 0;
+            String rawWait = query.get("waitMs");
+            if (rawWait != null) {
+                try {
+                    waitMs = Math.max(0, Math.min(MAX_STATE_WAIT_MS, Integer.parseInt(rawWait.trim())));
+                } catch (NumberFormatException e) {
+                    sendError(exchange, 400, "invalid_wait", "Query parameter 'waitMs' must be a number");
+                    return;
+                }
+            }
+
+            int lyricsWindow = 0;
+            String rawWindow = query.get("lyricsWindow");
+            if (rawWindow != null) {
+                try {
+                    lyricsWindow = Integer.parseInt(rawWindow.trim());
+                } catch (NumberFormatException e) {
+                    lyricsWindow = -1;
+                }
+                if (lyricsWindow < 1) {
+                    sendError(exchange, 400, "invalid_lyrics_window", "Query parameter 'lyricsWindow' must be a positive number");
+                    return;
+                }
+            }
+
+            StateProjection projection;
+            try {
+                projection = StateProjection.of(query.get("fields"), inline, lyricsWindow);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, "invalid_fields", e.getMessage());
+                return;
+            }
+
+            PlaybackStateSnapshot snapshot = currentSnapshot();
+            if (!matchesEtag(exchange.getRequestHeaders().getFirst("If-None-Match"), stateEtag(snapshot, inline, projection))) {
+                sendState(exchange, inline, projection);
+                return;
+            }
+
+            if (waitMs == 0) {
+                sendStateNotModified(exchange, snapshot, inline, projection);
+                return;
+            }
+
+            if (parkedStateRequestCount.incrementAndGet() > MAX_PARKED_STATE_REQUESTS) {
+                parkedStateRequestCount.decrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "too_many_waiters", "Too many parked state requests");
+                return;
+            }
+
+            // The exchange stays open after handle() returns; a sweep or the next snapshot completes it.
+            parkedStateRequests.add(new ParkedStateRequest(
+                exchange, snapshot.version(), inline, projection, System.currentTimeMillis() + waitMs));
+        }
+    }
+
+    private class StateStreamHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "GET");
+                return;
+            }
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean inline = !"false".equalsIgnoreCase(query.get("inline"));
+            // EventSource cannot set headers on the first connection, so the query parameter is accepted too.
+            String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+            if (lastEventId == null) {
+                lastEventId = query.get("lastEventId");
+            }
+
+            Headers headers = exchange.getResponseHeaders();
+            addCorsHeaders(headers);
+            headers.set("Content-Type", "text/event-stream; charset=utf-8");
+            headers.set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            stateEvents.subscribe(exchange, inline, lastEventId, currentSnapshot());
         }
     }
 
@@ -162,6 +504,19 @@ public class LocalApiServer {
                 return;
             }
 
+            TokenBucketRateLimiter.Decision decision = controlRateLimiter.tryAcquire(
+                clientKey(exchange.getRemoteAddress(), exchange.getRequestHeaders().getFirst("X-Api-Token")));
+            Headers responseHeaders = exchange.getResponseHeaders();
+            responseHeaders.set("X-RateLimit-Limit", String.valueOf(controlRateLimiter.burst()));
+            responseHeaders.set("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
+            responseHeaders.set("X-RateLimit-Reset", String.valueOf(decision.resetSeconds()));
+            if (!decision.allowed()) {
+                responseHeaders.set("Retry-After", String.valueOf(decision.retryAfterSeconds()));
+                sendError(exchange, 429, "rate_limited",
+                    "Too many control commands, retry in " + (decision.retryAfterNanos() / 1_000_000 + 1) + " ms");
+                return;
+            }
+
             byte[] rawBody = exchange.getRequestBody().readAllBytes();
             if (rawBody.length == 0) {
                 sendError(exchange, 400, "invalid_request", "Request body is required");
@@ -176,280 +531,745 @@ public class LocalApiServer {
                 return;
             }
 
-            if (request == null || request.action == null || request.action.isBlank()) {
-                sendError(exchange, 400, "invalid_action", "Field 'action' is required");
+            String action;
+            try {
+                action = executeControl(request);
+            } catch (ControlException e) {
+                sendError(exchange, e.status, e.code, e.getMessage());
                 return;
             }
 
-            String action = request.action.toLowerCase(Locale.ROOT);
-            try {
-                switch (action) {
-                    case "playpause" -> mediaControl.playPause();
-                    case "next" -> mediaControl.next();
-                    case "previous" -> mediaControl.previous();
-                    case "focussource" -> mediaControl.openCurrentInBrowser();
-                    case "seek" -> {
-                        if (request.seekSeconds == null) {
-                            sendError(exchange, 400, "invalid_seek", "Field 'seekSeconds' is required for seek action");
-                            return;
-                        }
-                        mediaControl.seekToSeconds(request.seekSeconds);
-                    }
-                    default -> {
-                        sendError(exchange, 400, "unknown_action", "Unsupported action: " + action);
-                        return;
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("accepted", true);
+            payload.put("action", action);
+            payload.put("executedAt", Instant.now().toString());
+            sendJsonBytes(exchange, 200, JsonBytes.withRawField(gson.toJson(payload), "state", currentFrame().json()));
+            notifyStateChanged();
+        }
+    }
+
+    /**
+     * Runs a control action through {@link MediaControlUseCase}; shared by {@code POST /control} and the state socket.
+     * Returns the normalized action name.
+     */
+    private String executeControl(ControlRequest request) throws ControlException {
+        String action = request == null || request.action == null ? "" : request.action.toLowerCase(Locale.ROOT);
+        String metricAction = CONTROL_ACTIONS.contains(action) ? action : "unknown";
+        try {
+            runControl(request, action);
+        } catch (ControlException e) {
+            Metrics.counter(CONTROL_METRIC, CONTROL_METRIC_HELP, "action", metricAction, "result", e.code).inc();
+            throw e;
+        }
+        Metrics.counter(CONTROL_METRIC, CONTROL_METRIC_HELP, "action", metricAction, "result", "ok").inc();
+        return action;
+    }
+
+    private void runControl(ControlRequest request, String action) throws ControlException {
+        if (action.isBlank()) {
+            throw new ControlException(400, "invalid_action", "Field 'action' is required");
+        }
+
+        try {
+            switch (action) {
+                case "playpause" -> mediaControl.playPause();
+                case "next" -> mediaControl.next();
+                case "previous" -> mediaControl.previous();
+                case "focussource" -> mediaControl.openCurrentInBrowser();
+                case "seek" -> {
+                    if (request.seekSeconds == null) {
+                        throw new ControlException(400, "invalid_seek", "Field 'seekSeconds' is required for seek action");
                     }
+                    mediaControl.seekToSeconds(request.seekSeconds);
                 }
-
-                Map<String, Object> payload = new LinkedHashMap<>();
-                payload.put("accepted", true);
-                payload.put("action", action);
-                payload.put("executedAt", Instant.now().toString());
-                payload.put("state", buildStatePayload());
-                sendJson(exchange, 200, payload);
-                pushStateToWebSocketClients();
-            } catch (Exception e) {
-                sendError(exchange, 500, "control_failed", e.getMessage() == null ? "Control command failed" : e.getMessage());
+                default -> throw new ControlException(400, "unknown_action", "Unsupported action: " + action);
             }
+        } catch (ControlException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ControlException(500, "control_failed", e.getMessage() == null ? "Control command failed" : e.getMessage());
         }
     }
 
-    private Map<String, Object> buildStatePayload() {
-        MediaInfo info = stateSupplier.get();
-        if (info == null) {
-            info = new MediaInfo("", "", "STOPPED", "");
-        }
+    private class LyricsPrefetchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+                addCorsHeaders(exchange.getResponseHeaders());
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
 
-        double effectivePosition = resolveEffectivePositionSeconds(info);
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "POST");
+                return;
+            }
 
-        Map<String, Object> playback = new LinkedHashMap<>();
-        playback.put("status", info.status());
-        playback.put("positionSeconds", effectivePosition);
-        playback.put("durationSeconds", info.duration());
-        playback.put("progress", resolveProgress(effectivePosition, info.duration()));
+            if (!isAuthorized(exchange)) {
+                sendError(exchange, 401, "unauthorized", "Missing or invalid API token");
+                return;
+            }
 
-        Map<String, Object> track = new LinkedHashMap<>();
-        track.put("artist", info.artist());
-        track.put("title", info.title());
-        track.put("thumbnailBase64", info.thumbnail());
-        track.put("thumbnailHdBase64", resolveThumbnailHd(info.thumbnail()));
-        track.put("source", ActiveMusicSource.get());
+            if (lyricsPrefetch == null) {
+                sendError(exchange, 503, "prefetch_unavailable", "Lyrics prefetch is not enabled");
+                return;
+            }
 
-        Map<String, Object> lyrics = buildLyricsPayload(info, effectivePosition);
+            LyricsPrefetchRequest request;
+            try {
+                request = gson.fromJson(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8), LyricsPrefetchRequest.class);
+            } catch (JsonSyntaxException e) {
+                sendError(exchange, 400, "invalid_json", "Malformed JSON payload");
+                return;
+            }
 
-        Map<String, Object> capabilities = new LinkedHashMap<>();
-        capabilities.put("canPlayPause", true);
-        capabilities.put("canSeek", true);
-        capabilities.put("canNext", true);
-        capabilities.put("canPrevious", true);
-        capabilities.put("canFocusSource", true);
+            if (request == null || request.tracks == null || request.tracks.isEmpty()) {
+                sendError(exchange, 400, "invalid_tracks", "Field 'tracks' must be a non-empty list of {artist, title}");
+                return;
+            }
 
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("timestamp", Instant.now().toString());
-        payload.put("playback", playback);
-        payload.put("track", track);
-        payload.put("lyrics", lyrics);
-        payload.put("capabilities", capabilities);
-        return payload;
-    }
+            if (request.tracks.size() > MAX_PREFETCH_TRACKS) {
+                sendError(exchange, 400, "too_many_tracks", "At most " + MAX_PREFETCH_TRACKS + " tracks per request");
+                return;
+            }
 
-    private Map<String, Object> buildLyricsPayload(MediaInfo info, double effectivePositionSeconds) {
-        List<LyricsLine> lines = resolveLyrics(info.artist(), info.title());
+            List<TrackRef> tracks = new ArrayList<>();
+            for (TrackRef track : request.tracks) {
+                if (track != null) {
+                    tracks.add(new TrackRef(track.artist(), track.title()));
+                }
+            }
 
-        List<Map<String, Object>> serialized = lines.stream()
-            .map(line -> {
-                Map<String, Object> item = new LinkedHashMap<>();
-                item.put("timeSeconds", line.timeSeconds());
-                item.put("text", line.text());
-                return item;
-            })
-            .toList();
+            LyricsPrefetchProgress accepted = lyricsPrefetch.prefetch(tracks, LocalApiServer.this::pushPrefetchProgressToWebSocketClients);
 
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("lines", serialized);
-        payload.put("activeIndex", resolveActiveLyricsIndex(lines, effectivePositionSeconds));
-        return payload;
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("accepted", true);
+            payload.put("jobId", accepted.jobId());
+            payload.put("total", accepted.total());
+            payload.put("queued", accepted.total() - accepted.alreadyCached() - accepted.alreadyInFlight());
+            payload.put("alreadyCached", accepted.alreadyCached());
+            payload.put("alreadyInFlight", accepted.alreadyInFlight());
+            payload.put("done", accepted.done());
+            sendJson(exchange, 202, payload);
+        }
     }
 
-    private double resolveEffectivePositionSeconds(MediaInfo info) {
-        String status = info.status() == null ? "STOPPED" : info.status().toUpperCase(Locale.ROOT);
-        double rawPosition = Math.max(0, info.position());
-        double duration = Math.max(0, info.duration());
-        long nowMs = System.currentTimeMillis();
+    private class LyricsSearchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "GET");
+                return;
+            }
 
-        boolean shouldResetBase = !"PLAYING".equals(status)
-            || !"PLAYING".equals(playbackStatusCache)
-            || playbackBaseCapturedAtMs <= 0
-            || rawPosition != lastReportedRawPosition
-            || rawPosition < playbackBasePosition - 0.75;
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String text = query.getOrDefault("q", "").trim();
+            if (text.isEmpty()) {
+                sendError(exchange, 400, "invalid_query", "Query parameter 'q' is required");
+                return;
+            }
 
-        if (shouldResetBase) {
-            playbackStatusCache = status;
-            playbackBasePosition = rawPosition;
-            playbackBaseDuration = duration;
-            playbackBaseCapturedAtMs = nowMs;
-            lastReportedRawPosition = rawPosition;
-            return rawPosition;
-        }
+            int limit = DEFAULT_SEARCH_LIMIT;
+            String rawLimit = query.get("limit");
+            if (rawLimit != null) {
+                try {
+                    limit = Math.max(1, Math.min(MAX_SEARCH_LIMIT, Integer.parseInt(rawLimit.trim())));
+                } catch (NumberFormatException e) {
+                    sendError(exchange, 400, "invalid_limit", "Query parameter 'limit' must be a number");
+                    return;
+                }
+            }
+
+            long startedAt = System.nanoTime();
+            List<LyricsSearchResult> found = lyricsUseCase == null ? List.of() : lyricsUseCase.searchLyrics(text, limit);
+
+            List<Map<String, Object>> results = found.stream()
+                .map(result -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("artist", result.artist());
+                    item.put("title", result.title());
+                    item.put("score", result.score());
+                    item.put("matches", result.matchedLines());
+                    return item;
+                })
+                .toList();
 
-        double elapsedSeconds = Math.max(0, (nowMs - playbackBaseCapturedAtMs) / 1000.0);
-        double extrapolated = playbackBasePosition + elapsedSeconds;
-        if (playbackBaseDuration > 0) {
-            extrapolated = Math.min(playbackBaseDuration, extrapolated);
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("query", text);
+            payload.put("results", results);
+            payload.put("tookMs", (System.nanoTime() - startedAt) / 1_000_000);
+            sendJson(exchange, 200, payload);
         }
+    }
+
+    private class ArtworkHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "GET");
+                return;
+            }
+
+            String hash = resolvePathKey(exchange);
+            ContentStore.Content original = hash == null ? null : artworkStore.get(hash);
+            if (original == null) {
+                sendError(exchange, 404, "artwork_not_found", "Unknown or expired artwork hash");
+                return;
+            }
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String rawSize = query.getOrDefault("size", "original").trim();
+            if (rawSize.isEmpty() || "original".equalsIgnoreCase(rawSize)) {
+                sendImmutable(exchange, original);
+                return;
+            }
 
-        return extrapolated;
+            int size;
+            try {
+                size = "hd".equalsIgnoreCase(rawSize) ? artworkPipeline.largestSize() : Integer.parseInt(rawSize);
+            } catch (NumberFormatException e) {
+                size = -1;
+            }
+            if (!artworkPipeline.sizes().contains(size)) {
+                sendError(exchange, 400, "invalid_size", "Supported sizes: original, hd, " + artworkPipeline.sizes());
+                return;
+            }
+
+            String format = query.containsKey("format")
+                ? ArtworkPipeline.normalizeFormat(query.get("format"))
+                : artworkPipeline.formats().get(0);
+            if (format == null || !artworkPipeline.formats().contains(format)) {
+                sendError(exchange, 400, "invalid_format", "Supported formats: " + artworkPipeline.formats());
+                return;
+            }
+
+            ContentStore.Content variant = artworkPipeline.find(hash, size, format);
+            if (variant != null) {
+                sendImmutable(exchange, variant);
+                return;
+            }
+
+            // Not rendered yet: serve the best thing available without letting clients cache it under this URL.
+            artworkPipeline.submit(hash, original.bytes());
+            ContentStore.Content nearest = artworkPipeline.nearest(hash, size, format);
+            sendProvisional(exchange, nearest == null ? original : nearest);
+        }
     }
 
-    private double resolveProgress(double positionSeconds, double durationSeconds) {
-        if (durationSeconds <= 0) {
-            return 0;
+    private class LyricsContentHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "GET");
+                return;
+            }
+
+            String key = resolvePathKey(exchange);
+            ContentStore.Content lyrics = key == null ? null : lyricsStore.get(key);
+            if (lyrics == null) {
+                sendError(exchange, 404, "lyrics_not_found", "Unknown or expired lyrics key");
+                return;
+            }
+
+            sendImmutable(exchange, lyrics);
         }
-        return Math.min(1.0, Math.max(0, positionSeconds / durationSeconds));
     }
 
-    private List<LyricsLine> resolveLyrics(String artist, String title) {
-        if (lyricsUseCase == null) {
-            return List.of();
+    /**
+     * Returns the snapshot for the current state, building a new one only when something real changed.
+     */
+    private PlaybackStateSnapshot currentSnapshot() {
+        MediaInfo info = stateSupplier.get();
+        if (info == null) {
+            info = new MediaInfo("", "", "STOPPED", "");
         }
 
-        String trackKey = (artist == null ? "" : artist.trim().toLowerCase(Locale.ROOT))
-            + "::"
-            + (title == null ? "" : title.trim().toLowerCase(Locale.ROOT));
+        LyricsState lyrics = resolveLyrics(info.artist(), info.title());
+        String artworkHash = resolveArtworkHash(info.thumbnail());
+        String thumbnailHd = resolveThumbnailHd(info.thumbnail(), artworkHash);
+        String source = ActiveMusicSource.get();
 
-        if (trackKey.equals("::")) {
-            lyricsCacheTrackKey = "";
-            lyricsCache = List.of();
-            return List.of();
-        }
+        PlaybackStateSnapshot snapshot;
+        synchronized (snapshotLock) {
+            snapshot = currentSnapshot;
+            if (snapshot != null && snapshot.isSameState(info, source, thumbnailHd, lyrics.lines, lyrics.status, System.currentTimeMillis())) {
+                return snapshot;
+            }
 
-        if (trackKey.equals(lyricsCacheTrackKey)) {
-            return lyricsCache;
+            snapshot = PlaybackStateSnapshot.create(
+                gson,
+                snapshotVersion.incrementAndGet(),
+                info,
+                source,
+                thumbnailHd,
+                artworkHash,
+                lyrics.lines,
+                lyrics.status,
+                snapshot,
+                System.currentTimeMillis());
+            if (snapshot.lyricsKey() != null) {
+                lyricsStore.put(snapshot.lyricsKey(), JsonBytes.withRawField(
+                    "{\"key\":\"" + snapshot.lyricsKey() + "\"}", "lines", snapshot.lyricsLinesJson()),
+                    "application/json; charset=utf-8");
+            }
+            currentSnapshot = snapshot;
+            snapshotBuiltAtNanos = System.nanoTime();
+            stateEvents.publish(snapshot);
         }
 
-        try {
-            List<LyricsLine> fetched = lyricsUseCase.getSyncedLyrics(artist, title);
-            lyricsCacheTrackKey = trackKey;
-            lyricsCache = fetched == null ? List.of() : fetched;
-            return lyricsCache;
-        } catch (Exception ignored) {
-            lyricsCacheTrackKey = trackKey;
-            lyricsCache = List.of();
-            return List.of();
+        releaseParkedStateRequests(snapshot, System.currentTimeMillis());
+        return snapshot;
+    }
+
+    /**
+     * Returns the encoded state, reusing the last frame while it is still accurate.
+     */
+    private StateFrame currentFrame() {
+        PlaybackStateSnapshot snapshot = currentSnapshot();
+        long nowMs = System.currentTimeMillis();
+
+        StateFrame frame = currentFrame;
+        if (frame != null
+            && frame.snapshot() == snapshot
+            && (!snapshot.isPlaying() || nowMs - frame.renderedAtMs() < FRAME_REUSE_MS)) {
+            return frame;
         }
+
+        frame = snapshot.render(nowMs);
+        currentFrame = frame;
+        return frame;
     }
 
-    private int resolveActiveLyricsIndex(List<LyricsLine> lines, double positionSeconds) {
-        if (lines == null || lines.isEmpty()) {
-            return -1;
+    /**
+     * Tells the server the media state may have changed. WebSocket clients get the new state at once
+     * when the snapshot actually differs; otherwise this is a no-op. Safe to call from any thread.
+     */
+    public void notifyStateChanged() {
+        try {
+            wsBroadcastExecutor.execute(this::broadcastIfChanged);
+        } catch (RejectedExecutionException ignored) {
         }
+    }
 
-        int activeIndex = -1;
-        for (int i = 0; i < lines.size(); i++) {
-            if (positionSeconds >= lines.get(i).timeSeconds()) {
-                activeIndex = i;
-            } else {
-                break;
+    private void broadcastIfChanged() {
+        try {
+            if (currentSnapshot().version() == broadcastVersion) {
+                return;
             }
+        } catch (Exception ignored) {
         }
-
-        return activeIndex;
+        broadcastNow();
     }
 
-    private String resolveThumbnailHd(String base64Thumbnail) {
-        String normalized = base64Thumbnail == null ? "" : base64Thumbnail.trim();
-        if (normalized.isEmpty()) {
-            thumbnailHdCacheKey = "";
-            thumbnailHdCacheValue = "";
-            return "";
+    /**
+     * Broadcasts and schedules the next broadcast at the next instant the state changes on its own:
+     * the next lyric line, the end of the track, a client becoming due again, or the heartbeat.
+     * Only runs on {@code wsBroadcastExecutor}.
+     */
+    private void broadcastNow() {
+        if (nextBroadcast != null) {
+            nextBroadcast.cancel(false);
         }
 
-        if (normalized.equals(thumbnailHdCacheKey) && !thumbnailHdCacheValue.isEmpty()) {
-            return thumbnailHdCacheValue;
+        long delayMs = wsHeartbeatMs;
+        try {
+            delayMs = Math.max(WS_MIN_BROADCAST_DELAY_MS, Math.min(wsHeartbeatMs, pushStateToWebSocketClients()));
+        } catch (Exception ignored) {
         }
 
         try {
-            byte[] decoded = Base64.getDecoder().decode(normalized);
-            BufferedImage source = ImageIO.read(new ByteArrayInputStream(decoded));
-            if (source == null) {
-                return normalized;
-            }
-
-            int width = source.getWidth();
-            int height = source.getHeight();
-            int minDimension = Math.min(width, height);
-            if (minDimension >= 640) {
-                thumbnailHdCacheKey = normalized;
-                thumbnailHdCacheValue = normalized;
-                return normalized;
-            }
-
-            double scale = 640.0 / Math.max(1, minDimension);
-            int targetWidth = Math.max(1, (int) Math.round(width * scale));
-            int targetHeight = Math.max(1, (int) Math.round(height * scale));
-
-            BufferedImage output = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D graphics = output.createGraphics();
-            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
-            graphics.dispose();
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ImageIO.write(output, "png", outputStream);
-            String encoded = Base64.getEncoder().encodeToString(outputStream.toByteArray());
-
-            thumbnailHdCacheKey = normalized;
-            thumbnailHdCacheValue = encoded;
-            return encoded;
+            nextBroadcast = wsBroadcastExecutor.schedule(this::broadcastNow, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    private void refreshForStreamSubscribers() {
+        try {
+            if (stateEvents.hasSubscribers()) {
+                currentSnapshot();
+            }
         } catch (Exception ignored) {
-            return normalized;
         }
     }
 
-    private boolean isAuthorized(HttpExchange exchange) {
-        String provided = exchange.getRequestHeaders().getFirst("X-Api-Token");
-        if (provided == null || provided.isBlank()) {
-            return false;
+    private void sweepParkedStateRequests() {
+        try {
+            if (!parkedStateRequests.isEmpty()) {
+                releaseParkedStateRequests(currentSnapshot(), System.currentTimeMillis());
+            }
+        } catch (Exception ignored) {
         }
+    }
 
-        return apiToken.equals(provided.trim());
+    /**
+     * Completes parked long-polls whose version is outdated (200) or whose wait expired (304).
+     */
+    private void releaseParkedStateRequests(PlaybackStateSnapshot snapshot, long nowMs) {
+        for (ParkedStateRequest parked : parkedStateRequests) {
+            boolean changed = parked.version != snapshot.version();
+            if (!changed && nowMs < parked.deadlineMs) {
+                continue;
+            }
+
+            if (!parkedStateRequests.remove(parked)) {
+                continue;
+            }
+
+            parkedStateRequestCount.decrementAndGet();
+            httpExecutor.execute(() -> {
+                try {
+                    if (changed) {
+                        sendState(parked.exchange, parked.inline, parked.projection);
+                    } else {
+                        sendStateNotModified(parked.exchange, snapshot, parked.inline, parked.projection);
+                    }
+                } catch (IOException e) {
+                    parked.exchange.close();
+                }
+            });
+        }
     }
 
-    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("code", code);
-        payload.put("message", message);
-        payload.put("timestamp", Instant.now().toString());
-        sendJson(exchange, status, payload);
+    private static String stateEtag(PlaybackStateSnapshot snapshot, boolean inline, StateProjection projection) {
+        return "W/\"state-" + snapshot.version() + (inline ? "" : "-ref")
+            + (projection == null ? "" : projection.etagSuffix()) + "\"";
     }
 
-    private void sendMethodNotAllowed(HttpExchange exchange, String allowedMethod) throws IOException {
-        exchange.getResponseHeaders().set("Allow", allowedMethod + ", OPTIONS");
-        sendError(exchange, 405, "method_not_allowed", "Use method " + allowedMethod);
+    /**
+     * Writes the current state; {@code projection} is {@code null} for the full payload.
+     */
+    private void sendState(HttpExchange exchange, boolean inline, StateProjection projection) throws IOException {
+        StateFrame frame = currentFrame();
+        exchange.getResponseHeaders().set("ETag", stateEtag(frame.snapshot(), inline, projection));
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (projection != null) {
+            sendJsonBytes(exchange, 200, frame.projected(projection, gson), encoding -> frame.compressed(projection, gson, encoding));
+            return;
+        }
+        sendJsonBytes(exchange, 200, inline ? frame.json() : frame.compactJson(), encoding -> frame.compressed(inline, encoding));
     }
 
-    private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
-        byte[] payload = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+    private void sendStateNotModified(
+            HttpExchange exchange,
+            PlaybackStateSnapshot snapshot,
+            boolean inline,
+            StateProjection projection) throws IOException {
         Headers headers = exchange.getResponseHeaders();
         addCorsHeaders(headers);
-        headers.set("Content-Type", "application/json; charset=utf-8");
-        exchange.sendResponseHeaders(statusCode, payload.length);
-        exchange.getResponseBody().write(payload);
+        headers.set("ETag", stateEtag(snapshot, inline, projection));
+        headers.set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(304, -1);
         exchange.close();
     }
 
-    private void addCorsHeaders(Headers headers) {
-        headers.set("Access-Control-Allow-Origin", "*");
-        headers.set("Access-Control-Allow-Headers", "Content-Type, X-Api-Token");
-        headers.set("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-    }
+    /**
+     * Only reads lyrics that are already resolved. A new track starts as {@code pending} and is
+     * fetched on the lyrics thread; the snapshot is rebuilt and pushed when the result lands.
+     */
+    private LyricsState resolveLyrics(String artist, String title) {
+        if (lyricsUseCase == null) {
+            return LyricsState.NONE;
+        }
 
-    private String resolveAppVersion() {
-        Package pkg = LocalApiServer.class.getPackage();
-        String implementationVersion = pkg == null ? null : pkg.getImplementationVersion();
-        return implementationVersion == null ? "dev" : implementationVersion;
+        String trackKey = (artist == null ? "" : artist.trim().toLowerCase(Locale.ROOT))
+            + "::"
+            + (title == null ? "" : title.trim().toLowerCase(Locale.ROOT));
+
+        if (trackKey.equals("::")) {
+            lyricsState = LyricsState.NONE;
+            return LyricsState.NONE;
+        }
+
+        LyricsState state = lyricsState;
+        if (trackKey.equals(state.trackKey)) {
+            return state;
+        }
+
+        synchronized (lyricsLock) {
+            state = lyricsState;
+            if (trackKey.equals(state.trackKey)) {
+                return state;
+            }
+
+            state = new LyricsState(trackKey, List.of(), LyricsState.STATUS_PENDING);
+            lyricsState = state;
+        }
+
+        lyricsExecutor.execute(() -> fetchLyrics(trackKey, artist, title));
+        return state;
+    }
+
+    private void fetchLyrics(String trackKey, String artist, String title) {
+        if (!trackKey.equals(lyricsState.trackKey)) {
+            return;
+        }
+
+        List<LyricsLine> fetched;
+        try {
+            fetched = lyricsUseCase.getSyncedLyrics(artist, title);
+        } catch (Exception e) {
+            System.err.println("Lyrics lookup failed for " + artist + " - " + title + ": " + e.getMessage());
+            fetched = null;
+        }
+
+        List<LyricsLine> lines = fetched == null ? List.of() : fetched;
+        synchronized (lyricsLock) {
+            if (!trackKey.equals(lyricsState.trackKey)) {
+                return;
+            }
+            lyricsState = new LyricsState(trackKey, lines, lines.isEmpty() ? LyricsState.STATUS_NONE : LyricsState.STATUS_READY);
+        }
+
+        notifyStateChanged();
+    }
+
+    /**
+     * The largest rendered variant once the pipeline has it; until then the original thumbnail.
+     */
+    private String resolveThumbnailHd(String base64Thumbnail, String artworkHash) {
+        String rendered = artworkPipeline.hdBase64(artworkHash);
+        if (rendered != null) {
+            return rendered;
+        }
+
+        // Pending or evicted since the cover was first seen: queue it again (ignored while a render is pending).
+        ContentStore.Content original = artworkHash == null ? null : artworkStore.get(artworkHash);
+        if (original != null) {
+            artworkPipeline.submit(artworkHash, original.bytes());
+        }
+        return base64Thumbnail == null ? "" : base64Thumbnail.trim();
+    }
+
+    /**
+     * Hashes the current thumbnail and registers it in the artwork store; {@code null} when there is none.
+     */
+    private String resolveArtworkHash(String base64Thumbnail) {
+        String normalized = base64Thumbnail == null ? "" : base64Thumbnail.trim();
+        if (normalized.isEmpty()) {
+            return null;
+        }
+
+        if (normalized.equals(artworkHashCacheKey)) {
+            return artworkHashCacheValue;
+        }
+
+        String hash;
+        try {
+            byte[] decoded = Base64.getDecoder().decode(normalized);
+            hash = ContentStore.hashOf(decoded);
+            artworkStore.put(hash, decoded, ContentStore.imageContentType(decoded));
+            artworkPipeline.submit(hash, decoded);
+        } catch (IllegalArgumentException e) {
+            hash = null;
+        }
+
+        artworkHashCacheKey = normalized;
+        artworkHashCacheValue = hash;
+        return hash;
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        String provided = exchange.getRequestHeaders().getFirst("X-Api-Token");
+        if (provided == null || provided.isBlank()) {
+            return false;
+        }
+
+        return apiToken.equals(provided.trim());
+    }
+
+    /**
+     * Rate-limit key for a client: its address plus the token it presented.
+     */
+    private static String clientKey(InetSocketAddress remote, String token) {
+        String host = remote == null || remote.getAddress() == null ? "unknown" : remote.getAddress().getHostAddress();
+        return host + "|" + (token == null ? "" : token.trim());
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isBlank()) {
+            return Map.of();
+        }
+
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+
+            String[] kv = pair.split("=", 2);
+            String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
+            String value = kv.length == 2 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "";
+            params.putIfAbsent(key, value);
+        }
+        return params;
+    }
+
+    /**
+     * Returns the hex content key after the context path, or {@code null} when it is malformed.
+     */
+    private static String resolvePathKey(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String contextPath = exchange.getHttpContext().getPath();
+        String key = path.length() > contextPath.length() ? path.substring(contextPath.length()) : "";
+        return key.matches("[0-9a-f]{32}") ? key : null;
+    }
+
+    private void sendImmutable(HttpExchange exchange, ContentStore.Content content) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        addCorsHeaders(headers);
+        headers.set("ETag", content.etag());
+        headers.set("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+
+        if (matchesEtag(exchange.getRequestHeaders().getFirst("If-None-Match"), content.etag())) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        headers.set("Content-Type", content.contentType());
+        exchange.sendResponseHeaders(200, content.bytes().length);
+        exchange.getResponseBody().write(content.bytes());
+        exchange.close();
+    }
+
+    private void sendProvisional(HttpExchange exchange, ContentStore.Content content) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        addCorsHeaders(headers);
+        headers.set("Cache-Control", "no-store");
+        headers.set("Content-Type", content.contentType());
+        exchange.sendResponseHeaders(200, content.bytes().length);
+        exchange.getResponseBody().write(content.bytes());
+        exchange.close();
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if ("*".equals(trimmed) || opaque.equals(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("code", code);
+        payload.put("message", message);
+        payload.put("timestamp", Instant.now().toString());
+        sendJson(exchange, status, payload);
+    }
+
+    private void sendMethodNotAllowed(HttpExchange exchange, String allowedMethod) throws IOException {
+        exchange.getResponseHeaders().set("Allow", allowedMethod + ", OPTIONS");
+        sendError(exchange, 405, "method_not_allowed", "Use method " + allowedMethod);
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
+        sendJsonBytes(exchange, statusCode, gson.toJson(body).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sendJsonBytes(HttpExchange exchange, int statusCode, byte[] payload) throws IOException {
+        sendJsonBytes(exchange, statusCode, payload, null);
+    }
+
+    /**
+     * Writes {@code payload}, compressed when the client accepts it. {@code precompressed} may supply
+     * cached bytes for the negotiated encoding so shared payloads are not compressed per request.
+     */
+    private void sendJsonBytes(
+            HttpExchange exchange,
+            int statusCode,
+            byte[] payload,
+            Function<String, byte[]> precompressed) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        addCorsHeaders(headers);
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        headers.set("Vary", "Accept-Encoding");
+
+        byte[] body = payload;
+        String encoding = payload.length < HttpCompression.MIN_COMPRESS_BYTES
+            ? null
+            : HttpCompression.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding != null) {
+            body = precompressed != null ? precompressed.apply(encoding) : HttpCompression.compress(payload, encoding);
+            headers.set("Content-Encoding", encoding);
+        }
+
+        exchange.sendResponseHeaders(statusCode, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private void addCorsHeaders(Headers headers) {
+        headers.set("Access-Control-Allow-Origin", "*");
+        headers.set("Access-Control-Allow-Headers", "Content-Type, X-Api-Token, If-None-Match");
+        headers.set("Access-Control-Expose-Headers", "ETag, Retry-After, X-RateLimit-Limit, X-RateLimit-Remaining, X-RateLimit-Reset");
+        headers.set("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+    }
+
+    private String resolveAppVersion() {
+        Package pkg = LocalApiServer.class.getPackage();
+        String implementationVersion = pkg == null ? null : pkg.getImplementationVersion();
+        return implementationVersion == null ? "dev" : implementationVersion;
+    }
+
+    /**
+     * {@code vinil.api.socket}: path of the Unix domain socket, {@code none} to disable.
+     */
+    private Path resolveLocalSocketPath() {
+        String raw = System.getProperty("vinil.api.socket", "").trim();
+        if (raw.equalsIgnoreCase("none") || raw.equalsIgnoreCase("false")) {
+            return null;
+        }
+        return raw.isEmpty()
+            ? Path.of(System.getProperty("user.home"), ".vinilplayer", "api.sock")
+            : Path.of(raw);
+    }
+
+    /**
+     * Serves the API on a Unix domain socket too, for status bars and scripts on this machine.
+     * A leftover socket file is replaced only when nothing answers on it. Failing here never stops the TCP listener.
+     */
+    private static Path bindLocalSocket(NioHttpServer nioServer, Path path) {
+        if (path == null) {
+            return null;
+        }
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            if (Files.exists(path)) {
+                try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                    probe.connect(UnixDomainSocketAddress.of(path));
+                    System.err.println("Local API socket " + path + " is in use by another process; serving TCP only");
+                    return null;
+                } catch (IOException stale) {
+                    Files.delete(path);
+                }
+            }
+
+            nioServer.bindLocal(UnixDomainSocketAddress.of(path));
+            try {
+                Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+                // Windows: the socket file inherits the ACL of the user's profile directory.
+            }
+            return path;
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Local API socket unavailable at " + path + ": " + e.getMessage());
+            return null;
+        }
     }
 
     private String resolveHost() {
@@ -470,6 +1290,26 @@ public class LocalApiServer {
         }
     }
 
+    private double resolvePositiveDoubleProperty(String name, double defaultValue) {
+        String raw = System.getProperty(name, String.valueOf(defaultValue)).trim();
+        try {
+            double parsed = Double.parseDouble(raw);
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
+    private int resolvePositiveIntProperty(String name, int defaultValue) {
+        String raw = System.getProperty(name, String.valueOf(defaultValue)).trim();
+        try {
+            int parsed = Integer.parseInt(raw);
+            return parsed < 1 ? defaultValue : parsed;
+        } catch (NumberFormatException ignored) {
+            return defaultValue;
+        }
+    }
+
     private int resolvePort() {
         String raw = System.getProperty("vinil.api.port", "8750").trim();
         try {
@@ -483,16 +1323,344 @@ public class LocalApiServer {
         }
     }
 
-    private void pushStateToWebSocketClients() {
+    /**
+     * Sends a freshly rendered frame and returns the delay until the next broadcast is needed.
+     */
+    private long pushStateToWebSocketClients() {
+        PlaybackStateSnapshot snapshot = currentSnapshot();
+        boolean published = snapshot.version() != broadcastVersion;
+        broadcastVersion = snapshot.version();
+        if (!stateSocket.hasConnections()) {
+            // Keep journaling real changes so a client reconnecting with ?since= still sees them.
+            synchronized (deltaLock) {
+                if (deltaBaseFrame != null && deltaBaseFrame.snapshot() != snapshot) {
+                    advanceDeltaStream(snapshot.render(System.currentTimeMillis()));
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        // Rendered now rather than reused, so a broadcast timed to a lyric line carries that line.
+        long nowMs = System.currentTimeMillis();
+        StateFrame frame = snapshot.render(nowMs);
+        currentFrame = frame;
+        long clientDueMs;
+        synchronized (deltaLock) {
+            clientDueMs = broadcastFrame(frame);
+        }
+        if (published) {
+            PUBLISH_LATENCY.observeSince(snapshotBuiltAtNanos);
+        }
+        return Math.min(snapshot.nextTimelineEventAtMs(nowMs), clientDueMs) - nowMs;
+    }
+
+    /**
+     * Sends {@code frame} to every client. Plain v1 clients get the full envelope on every tick; v2 and
+     * subscribed clients only get what changed in their topics since the last frame they received, at most
+     * at their {@code maxRate}. Each patch is encoded once per distinct base frame and topic set.
+     * <p>
+     * State frames are latest-wins: while a client still has unsent bytes queued, its frame is dropped
+     * instead of queued behind them, and the next one it gets covers everything it missed. A client that
+     * stays behind is sent to less often, and one that never drains is disconnected.
+     * Returns the earliest time a client that was skipped for its rate becomes due again.
+     * Callers must hold {@code deltaLock}.
+     */
+    private long broadcastFrame(StateFrame frame) {
+        StateFrame previousBase = deltaBaseFrame;
+        byte[] streamPatch = advanceDeltaStream(frame);
+        Map<PatchKey, byte[]> patches = new HashMap<>();
+        if (streamPatch != null) {
+            patches.put(new PatchKey(previousBase, StateDeltaEncoder.ALL_TOPICS), streamPatch);
+        }
+
+        long nowMs = System.currentTimeMillis();
+        long nextDueMs = Long.MAX_VALUE;
+        for (WebSocket client : stateSocket.openClients()) {
+            ClientSession session = client.getAttachment();
+            if (session == null) {
+                continue;
+            }
+
+            if (nowMs < session.dueAtMs()) {
+                nextDueMs = Math.min(nextDueMs, session.dueAtMs());
+                continue;
+            }
+
+            byte[] payload;
+            if (session.protocol != 2 && !session.subscribed) {
+                payload = frame.webSocketEnvelope();
+            } else {
+                if (session.baseFrame == deltaBaseFrame) {
+                    continue;
+                }
+
+                ClientSession target = session;
+                byte[] patch = patches.computeIfAbsent(new PatchKey(session.baseFrame, session.patchMode()), key ->
+                    StateDeltaEncoder.encodePatch(gson, deltaSeq, target.baseSeq, key.from(), deltaBaseFrame, key.topics()));
+                if (patch == null) {
+                    // Nothing in this client's topics changed; keep its base so the next patch still applies.
+                    continue;
+                }
+                payload = session.protocol == 2 ? patch : frame.webSocketEnvelope();
+            }
+
+            long buffered = bufferedBytes(client);
+            if (buffered > 0) {
+                wsFramesDropped.increment();
+                session.fellBehind(nowMs);
+                if (nowMs - session.behindSinceMs >= wsStallTimeoutMs) {
+                    wsSlowDisconnects.increment();
+                    System.out.println("Closing WebSocket client " + client.getRemoteSocketAddress()
+                        + ": " + buffered + " bytes unsent for " + (nowMs - session.behindSinceMs) + " ms");
+                    client.closeConnection(CloseFrame.TRY_AGAIN_LATER, "Client is not reading state frames");
+                }
+                continue;
+            }
+
+            stateSocket.send(client, payload);
+            wsFramesSent.increment();
+            session.markSent(deltaBaseFrame, deltaSeq, nowMs);
+        }
+        return nextDueMs;
+    }
+
+    /**
+     * Bytes the library has queued for {@code client} but not yet written to the socket.
+     */
+    private static long bufferedBytes(WebSocket client) {
+        if (!(client instanceof WebSocketImpl impl) || !impl.hasBufferedData()) {
+            return 0;
+        }
+
+        long total = 0;
+        for (ByteBuffer buffer : impl.outQueue) {
+            total += buffer.remaining();
+        }
+        return total;
+    }
+
+    private WebSocketStats webSocketStats() {
+        long nowMs = System.currentTimeMillis();
+        List<WebSocketStats.Client> clients = new ArrayList<>();
+        synchronized (deltaLock) {
+            for (WebSocket client : stateSocket.openClients()) {
+                ClientSession session = client.getAttachment();
+                if (session == null) {
+                    continue;
+                }
+                clients.add(new WebSocketStats.Client(
+                    String.valueOf(client.getRemoteSocketAddress()),
+                    session.protocol,
+                    session.intervalMs(),
+                    session.behindSinceMs == 0 ? 0 : nowMs - session.behindSinceMs,
+                    session.droppedFrames,
+                    bufferedBytes(client)));
+            }
+        }
+        return new WebSocketStats(clients.size(), wsFramesSent.sum(), wsFramesDropped.sum(), wsSlowDisconnects.sum(), clients);
+    }
+
+    /**
+     * Moves the v2 stream to {@code frame} and returns the patch to broadcast, or {@code null} when nothing changed.
+     * Callers must hold {@code deltaLock} so patches leave in sequence order.
+     */
+    private byte[] advanceDeltaStream(StateFrame frame) {
+        if (deltaBaseFrame == null) {
+            deltaBaseFrame = frame;
+            return null;
+        }
+
+        byte[] patch = StateDeltaEncoder.encodePatch(gson, deltaSeq + 1, deltaSeq, deltaBaseFrame, frame, StateDeltaEncoder.ALL_TOPICS);
+        if (patch != null) {
+            deltaSeq++;
+            deltaBaseFrame = frame;
+            deltaJournal.append(deltaSeq, patch);
+        }
+        return patch;
+    }
+
+    /**
+     * Sends the full current state to {@code conn} (a v2 snapshot or the v1 envelope) and registers it
+     * for the following broadcasts.
+     */
+    private void sendFullState(WebSocket conn) {
+        StateFrame frame = currentFrame();
+        synchronized (deltaLock) {
+            broadcastFrame(frame);
+            ClientSession session = conn.getAttachment();
+            stateSocket.send(conn, session.protocol == 2
+                ? StateDeltaEncoder.encodeSnapshot(deltaStreamId, deltaSeq, deltaBaseFrame)
+                : deltaBaseFrame.webSocketEnvelope());
+            session.markSent(deltaBaseFrame, deltaSeq, System.currentTimeMillis());
+            stateSocket.register(conn);
+        }
+    }
+
+    /**
+     * v2 reconnect with {@code ?stream=<id>&since=<seq>}: replays the journaled patches after {@code since}
+     * when they are all still there and cost less than a snapshot, otherwise sends one snapshot.
+     */
+    private void resumeDeltaStream(WebSocket conn, String stream, String rawSince) {
+        long since;
+        try {
+            since = rawSince == null ? -1 : Long.parseLong(rawSince.trim());
+        } catch (NumberFormatException e) {
+            since = -1;
+        }
+        if (since < 0 || !deltaStreamId.equals(stream)) {
+            sendFullState(conn);
+            return;
+        }
+
+        StateFrame frame = currentFrame();
+        synchronized (deltaLock) {
+            broadcastFrame(frame);
+            List<byte[]> missed = deltaJournal.since(since, deltaSeq);
+            long replayBytes = 0;
+            for (byte[] patch : missed == null ? List.<byte[]>of() : missed) {
+                replayBytes += patch.length;
+            }
+
+            if (missed == null || replayBytes > deltaBaseFrame.compactJson().length) {
+                stateSocket.send(conn, StateDeltaEncoder.encodeSnapshot(deltaStreamId, deltaSeq, deltaBaseFrame));
+            } else {
+                for (byte[] patch : missed) {
+                    stateSocket.send(conn, patch);
+                }
+                stateSocket.send(conn, ("{\"type\":\"resumed\",\"stream\":\"" + deltaStreamId + "\",\"fromSeq\":" + since
+                    + ",\"seq\":" + deltaSeq + ",\"replayed\":" + missed.size() + "}").getBytes(StandardCharsets.UTF_8));
+            }
+
+            ClientSession session = conn.getAttachment();
+            session.markSent(deltaBaseFrame, deltaSeq, System.currentTimeMillis());
+            stateSocket.register(conn);
+        }
+    }
+
+    private void handleSocketCommand(WebSocket conn, ClientSession session, SocketMessage message) {
+        TokenBucketRateLimiter.Decision decision = controlRateLimiter.tryAcquire(session.rateLimitKey);
+        if (!decision.allowed()) {
+            sendSocketError(conn, message.requestId, "rate_limited",
+                "Too many control commands, retry in " + (decision.retryAfterNanos() / 1_000_000 + 1) + " ms");
+            return;
+        }
+
+        // Media control may block on the platform adapter, so keep it off the socket's read thread,
+        // but run one connection's commands in the order they were sent.
+        session.pendingCommands.add(message);
+        if (session.drainingCommands.compareAndSet(false, true)) {
+            httpExecutor.execute(() -> drainSocketCommands(conn, session));
+        }
+    }
+
+    private void drainSocketCommands(WebSocket conn, ClientSession session) {
+        boolean shedding = BoundedRequestExecutor.isShedding();
+        do {
+            SocketMessage message;
+            while ((message = session.pendingCommands.poll()) != null) {
+                if (shedding) {
+                    sendSocketError(conn, message.requestId, "overloaded", "Server is busy, retry shortly");
+                } else {
+                    runSocketCommand(conn, message);
+                }
+            }
+            session.drainingCommands.set(false);
+        } while (!session.pendingCommands.isEmpty() && session.drainingCommands.compareAndSet(false, true));
+    }
+
+    private void runSocketCommand(WebSocket conn, SocketMessage message) {
+        String action;
         try {
-            if (!wsServer.hasConnections()) {
+            action = executeControl(message);
+        } catch (ControlException e) {
+            sendSocketError(conn, message.requestId, e.code, e.getMessage());
+            return;
+        }
+
+        Map<String, Object> ack = new LinkedHashMap<>();
+        ack.put("type", "ack");
+        ack.put("requestId", message.requestId);
+        ack.put("action", action);
+        ack.put("executedAt", Instant.now().toString());
+        stateSocket.send(conn, gson.toJson(ack).getBytes(StandardCharsets.UTF_8));
+        notifyStateChanged();
+    }
+
+    private void handleSocketSubscribe(WebSocket conn, ClientSession session, SocketMessage message) {
+        // v1 frames are full snapshots shared by every v1 client, so topics cannot filter them.
+        if (session.protocol != 2) {
+            sendSocketError(conn, message.requestId, "unsupported_protocol", "Message 'subscribe' requires protocol=2");
+            return;
+        }
+
+        int topics = 0;
+        List<String> accepted = new ArrayList<>();
+        for (String topic : message.topics == null ? List.<String>of() : message.topics) {
+            int bit = StateDeltaEncoder.topicBit(topic);
+            if (bit != 0 && (topics & bit) == 0) {
+                topics |= bit;
+                accepted.add(topic.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        if (topics == 0) {
+            sendSocketError(conn, message.requestId, "invalid_topics",
+                "Field 'topics' must list at least one of playback, track, lyrics, artwork");
+            return;
+        }
+        if (message.maxRate != null && !(message.maxRate > 0)) {
+            sendSocketError(conn, message.requestId, "invalid_rate", "Field 'maxRate' must be a positive number of messages per second");
+            return;
+        }
+
+        synchronized (deltaLock) {
+            session.subscribe(topics, message.maxRate == null ? 0 : (long) Math.ceil(1000.0 / message.maxRate));
+        }
+
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("type", "subscribed");
+        reply.put("requestId", message.requestId);
+        reply.put("topics", accepted);
+        reply.put("maxRate", message.maxRate);
+        stateSocket.send(conn, gson.toJson(reply).getBytes(StandardCharsets.UTF_8));
+        // Topics that were filtered out until now may be stale on the client, so start again from a full state.
+        sendFullState(conn);
+    }
+
+    /**
+     * NTP-style reply: with its send and receive times {@code t0}/{@code t3}, the client estimates
+     * {@code offset = ((serverReceivedMs - t0) + (serverTimeMs - t3)) / 2} against {@link ServerClock}.
+     */
+    private void sendPong(WebSocket conn, SocketMessage ping, long receivedAtServerMs) {
+        Map<String, Object> pong = new LinkedHashMap<>();
+        pong.put("type", "pong");
+        pong.put("clientTime", ping.clientTime);
+        pong.put("serverReceivedMs", receivedAtServerMs);
+        pong.put("serverTimeMs", ServerClock.nowMs());
+        stateSocket.send(conn, gson.toJson(pong).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sendSocketError(WebSocket conn, String requestId, String code, String message) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", "error");
+        payload.put("requestId", requestId);
+        payload.put("code", code);
+        payload.put("message", message);
+        stateSocket.send(conn, gson.toJson(payload).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void pushPrefetchProgressToWebSocketClients(LyricsPrefetchProgress progress) {
+        try {
+            if (!stateSocket.hasConnections()) {
                 return;
             }
 
             Map<String, Object> envelope = new LinkedHashMap<>();
-            envelope.put("type", "state");
-            envelope.put("state", buildStatePayload());
-            wsServer.broadcastState(gson.toJson(envelope));
+            envelope.put("type", "lyricsPrefetch");
+            envelope.put("progress", progress);
+            byte[] payload = gson.toJson(envelope).getBytes(StandardCharsets.UTF_8);
+            for (WebSocket client : stateSocket.openClients()) {
+                stateSocket.send(client, payload);
+            }
         } catch (Exception ignored) {
         }
     }
@@ -504,13 +1672,12 @@ public class LocalApiServer {
         return host;
     }
 
-    private class StateWebSocketServer extends WebSocketServer {
+    /**
+     * The state socket itself, independent of which server carries the connections.
+     */
+    private class StateSocket implements NioHttpServer.WebSocketEndpoint {
         private final CopyOnWriteArraySet<WebSocket> clients = new CopyOnWriteArraySet<>();
 
-        StateWebSocketServer(String host, int port) {
-            super(new InetSocketAddress(host, port));
-        }
-
         @Override
         public void onOpen(WebSocket conn, ClientHandshake handshake) {
             if (!isExpectedPath(handshake) || !isWebSocketAuthorized(handshake)) {
@@ -518,7 +1685,18 @@ public class LocalApiServer {
                 return;
             }
 
-            clients.add(conn);
+            Map<String, String> query = parseQuery(queryOf(handshake.getResourceDescriptor()));
+            int protocol = "2".equals(query.get("protocol")) ? 2 : 1;
+            String token = handshake.getFieldValue("X-Api-Token");
+            conn.setAttachment(new ClientSession(
+                protocol,
+                clientKey(conn.getRemoteSocketAddress(), token == null || token.isBlank() ? query.get("token") : token),
+                protocol == 2 && "1".equals(query.get("clock"))));
+            if (protocol == 2) {
+                resumeDeltaStream(conn, query.get("stream"), query.get("since"));
+            } else {
+                clients.add(conn);
+            }
         }
 
         @Override
@@ -528,6 +1706,32 @@ public class LocalApiServer {
 
         @Override
         public void onMessage(WebSocket conn, String message) {
+            long receivedAtServerMs = ServerClock.nowMs();
+            ClientSession session = conn.getAttachment();
+            if (session == null) {
+                return;
+            }
+
+            SocketMessage parsed;
+            try {
+                parsed = gson.fromJson(message, SocketMessage.class);
+            } catch (JsonSyntaxException e) {
+                sendSocketError(conn, null, "invalid_json", "Malformed JSON payload");
+                return;
+            }
+
+            if (parsed == null || parsed.type == null || parsed.type.isBlank()) {
+                sendSocketError(conn, null, "invalid_message", "Field 'type' is required");
+                return;
+            }
+
+            switch (parsed.type) {
+                case "command" -> handleSocketCommand(conn, session, parsed);
+                case "subscribe" -> handleSocketSubscribe(conn, session, parsed);
+                case "resync" -> sendFullState(conn);
+                case "ping" -> sendPong(conn, parsed, receivedAtServerMs);
+                default -> sendSocketError(conn, parsed.requestId, "unknown_type", "Unsupported message type: " + parsed.type);
+            }
         }
 
         @Override
@@ -537,23 +1741,40 @@ public class LocalApiServer {
             }
         }
 
-        @Override
-        public void onStart() {
-            setConnectionLostTimeout(30);
-        }
-
         boolean hasConnections() {
             return !clients.isEmpty();
         }
 
-        void broadcastState(String payload) {
+        int connectionCount() {
+            return clients.size();
+        }
+
+        void register(WebSocket conn) {
+            if (conn.isOpen()) {
+                clients.add(conn);
+            }
+        }
+
+        List<WebSocket> openClients() {
+            List<WebSocket> open = new ArrayList<>(clients.size());
             for (WebSocket client : clients) {
                 if (client.isOpen()) {
-                    client.send(payload);
+                    open.add(client);
                 } else {
                     clients.remove(client);
                 }
             }
+            return open;
+        }
+
+        void send(WebSocket client, byte[] payload) {
+            if (!client.isOpen()) {
+                return;
+            }
+
+            TextFrame frame = new TextFrame();
+            frame.setPayload(ByteBuffer.wrap(payload));
+            client.sendFrame(frame);
         }
 
         private boolean isExpectedPath(ClientHandshake handshake) {
@@ -581,35 +1802,175 @@ public class LocalApiServer {
                 return true;
             }
 
-            String resource = handshake.getResourceDescriptor();
-            if (resource == null || resource.isBlank()) {
-                return false;
+            String token = parseQuery(queryOf(handshake.getResourceDescriptor())).get("token");
+            return apiToken.equals(token);
+        }
+
+        private String queryOf(String resource) {
+            if (resource == null) {
+                return null;
             }
 
             int queryIndex = resource.indexOf('?');
-            if (queryIndex < 0 || queryIndex + 1 >= resource.length()) {
-                return false;
+            return queryIndex < 0 ? null : resource.substring(queryIndex + 1);
+        }
+    }
+
+    private class StateWebSocketServer extends WebSocketServer {
+        StateWebSocketServer(String host, int port) {
+            super(new InetSocketAddress(host, port), List.of(new Draft_6455(new StateDeflateExtension())));
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+            stateSocket.onOpen(conn, handshake);
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            stateSocket.onClose(conn, code, reason, remote);
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            stateSocket.onMessage(conn, message);
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            if (conn == null) {
+                System.err.println("Local API websocket on port " + getPort() + " unavailable: " + ex.getMessage());
             }
+            stateSocket.onError(conn, ex);
+        }
 
-            String query = resource.substring(queryIndex + 1);
-            for (String pair : query.split("&")) {
-                if (pair.isBlank()) {
-                    continue;
-                }
+        @Override
+        public void onStart() {
+            setConnectionLostTimeout(30);
+        }
+    }
 
-                String[] kv = pair.split("=", 2);
-                if (kv.length != 2) {
-                    continue;
-                }
+    /**
+     * permessage-deflate for the state socket; frames under the threshold go out uncompressed.
+     * The library's copyInstance() drops the threshold, so each connection's copy restores it here.
+     */
+    private static final class StateDeflateExtension extends PerMessageDeflateExtension {
+        StateDeflateExtension() {
+            setThreshold(WS_DEFLATE_THRESHOLD);
+        }
 
-                String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
-                String value = URLDecoder.decode(kv[1], StandardCharsets.UTF_8);
-                if ("token".equals(key) && apiToken.equals(value)) {
-                    return true;
-                }
+        @Override
+        public IExtension copyInstance() {
+            return new StateDeflateExtension();
+        }
+    }
+
+    /**
+     * Lyrics for one track key as seen by the snapshot builder; replaced whole, never mutated.
+     */
+    private static final class LyricsState {
+        static final String STATUS_PENDING = "pending";
+        static final String STATUS_READY = "ready";
+        static final String STATUS_NONE = "none";
+        static final LyricsState NONE = new LyricsState("", List.of(), STATUS_NONE);
+
+        private final String trackKey;
+        private final List<LyricsLine> lines;
+        private final String status;
+
+        LyricsState(String trackKey, List<LyricsLine> lines, String status) {
+            this.trackKey = trackKey;
+            this.lines = lines;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Per-connection state. The subscription, delta and flow-control fields are guarded by {@code deltaLock}.
+     */
+    private static final class ClientSession {
+        private final int protocol;
+        private final String rateLimitKey;
+        private final boolean clockSync;
+        private final Queue<SocketMessage> pendingCommands = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drainingCommands = new AtomicBoolean();
+        private boolean subscribed;
+        private int topics = StateDeltaEncoder.ALL_TOPICS;
+        private long minIntervalMs;
+        private StateFrame baseFrame;
+        private long baseSeq;
+        private long lastSentAtMs;
+        private long backoffMs;
+        private long retryAtMs;
+        private long behindSinceMs;
+        private long droppedFrames;
+
+        ClientSession(int protocol, String rateLimitKey, boolean clockSync) {
+            this.protocol = protocol;
+            this.rateLimitKey = rateLimitKey;
+            this.clockSync = clockSync;
+        }
+
+        int patchMode() {
+            return clockSync ? topics | StateDeltaEncoder.CLOCK_SYNC : topics;
+        }
+
+        void subscribe(int topics, long minIntervalMs) {
+            this.subscribed = true;
+            this.topics = topics;
+            this.minIntervalMs = minIntervalMs;
+        }
+
+        long intervalMs() {
+            return Math.max(minIntervalMs, backoffMs);
+        }
+
+        long dueAtMs() {
+            return Math.max(lastSentAtMs + intervalMs(), retryAtMs);
+        }
+
+        /**
+         * The previous frame is still queued: skip this one and double the interval, up to {@code WS_MAX_BACKOFF_MS}.
+         */
+        void fellBehind(long nowMs) {
+            droppedFrames++;
+            backoffMs = Math.min(WS_MAX_BACKOFF_MS, Math.max(WS_MIN_BACKOFF_MS, backoffMs * 2));
+            retryAtMs = nowMs + backoffMs;
+            if (behindSinceMs == 0) {
+                behindSinceMs = nowMs;
             }
+        }
 
-            return false;
+        /**
+         * A frame went out on a drained connection: halve the backoff until the client is back to its own rate.
+         */
+        void markSent(StateFrame frame, long seq, long nowMs) {
+            this.baseFrame = frame;
+            this.baseSeq = seq;
+            this.lastSentAtMs = nowMs;
+            this.behindSinceMs = 0;
+            this.backoffMs = backoffMs <= WS_MIN_BACKOFF_MS ? 0 : backoffMs / 2;
+        }
+    }
+
+    private record WebSocketStats(int clients, long framesSent, long framesDropped, long slowDisconnects, List<Client> connections) {
+        private record Client(String remote, int protocol, long intervalMs, long lagMs, long droppedFrames, long bufferedBytes) {
+        }
+    }
+
+    private record PatchKey(StateFrame from, int topics) {
+    }
+
+    private static final class ControlException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        private final String code;
+
+        ControlException(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
         }
     }
 
@@ -618,4 +1979,35 @@ public class LocalApiServer {
         Double seekSeconds;
         String requestId;
     }
+
+    /**
+     * Client message on the state socket: {@code command} (a {@link ControlRequest}), {@code subscribe},
+     * {@code resync} or {@code ping}.
+     */
+    private static class SocketMessage extends ControlRequest {
+        String type;
+        List<String> topics;
+        Double maxRate;
+        Long clientTime;
+    }
+
+    private static final class ParkedStateRequest {
+        private final HttpExchange exchange;
+        private final long version;
+        private final boolean inline;
+        private final StateProjection projection;
+        private final long deadlineMs;
+
+        ParkedStateRequest(HttpExchange exchange, long version, boolean inline, StateProjection projection, long deadlineMs) {
+            this.exchange = exchange;
+            this.version = version;
+            this.inline = inline;
+            this.projection = projection;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    private static class LyricsPrefetchRequest {
+        List<TrackRef> tracks;
+    }
 }
@@ -0,0 +1,307 @@
+package net.iozamudio.infrastructure.api;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link HttpExchange} over a {@link NioHttpServer} connection. The request body is already buffered;
+ * the response is framed with {@code Content-Length} or chunked encoding and queued on the connection,
+ * so an exchange can be completed from any thread, as long-poll and SSE handlers do.
+ */
+final class NioHttpExchange extends HttpExchange {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final NioHttpServer.Connection connection;
+    private final HttpContext context;
+    private final NioHttpServer.RequestHead head;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private InputStream requestBody;
+    private OutputStream responseBody = new ResponseBody();
+    private int responseCode = -1;
+    private boolean headersSent;
+    private boolean noBody;
+    private boolean chunked;
+    private long remaining;
+    private boolean truncated;
+    private boolean finished;
+
+    NioHttpExchange(NioHttpServer.Connection connection, HttpContext context, NioHttpServer.RequestHead head, byte[] body) {
+        this.connection = connection;
+        this.context = context;
+        this.head = head;
+        this.requestBody = new ByteArrayInputStream(body);
+    }
+
+    /**
+     * A complete bodyless response for requests that never reach a handler (unknown route, bad framing).
+     */
+    static byte[] statusOnly(int status, boolean close) {
+        return ("HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+                + "Date: " + httpDate() + "\r\n"
+                + "Content-Length: 0\r\n"
+                + (close ? "Connection: close\r\n" : "")
+                + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return head.headers;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return head.uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return head.method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        try {
+            responseBody.close();
+        } catch (IOException ignored) {
+            finish();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        boolean noBody;
+        boolean chunked;
+        synchronized (this) {
+            if (headersSent) {
+                throw new IOException("Response headers already sent");
+            }
+
+            noBody = responseLength < 0 || rCode == 204 || rCode == 304 || "HEAD".equals(head.method);
+            chunked = !noBody && responseLength == 0;
+            this.headersSent = true;
+            this.responseCode = rCode;
+            this.noBody = noBody;
+            this.chunked = chunked;
+            this.remaining = noBody || chunked ? 0 : responseLength;
+        }
+
+        StringBuilder out = new StringBuilder(256);
+        out.append("HTTP/1.1 ").append(rCode).append(' ').append(reason(rCode)).append("\r\n");
+        out.append("Date: ").append(httpDate()).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                out.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (chunked) {
+            out.append("Transfer-Encoding: chunked\r\n");
+        } else if (rCode != 204 && rCode != 304) {
+            out.append("Content-Length: ").append(noBody && !"HEAD".equals(head.method) ? 0 : Math.max(0, responseLength)).append("\r\n");
+        }
+        if (!head.keepAlive) {
+            out.append("Connection: close\r\n");
+        }
+        out.append("\r\n");
+        connection.write(ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.ISO_8859_1)));
+
+        if (noBody) {
+            finish();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public synchronized int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return head.protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    /**
+     * The response cannot be completed (handler failure): the connection is dropped instead.
+     */
+    void abort() {
+        synchronized (this) {
+            truncated = true;
+        }
+        connection.abort();
+        finish();
+    }
+
+    synchronized boolean mustCloseConnection() {
+        return truncated || !head.keepAlive;
+    }
+
+    private void finish() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (!headersSent || remaining > 0) {
+                truncated = true;
+            }
+        }
+        connection.exchangeFinished(this);
+    }
+
+    private static String httpDate() {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 200 -> "OK";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 411 -> "Length Required";
+            case 413 -> "Payload Too Large";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 503 -> "Service Unavailable";
+            default -> "Status";
+        };
+    }
+
+    private final class ResponseBody extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+
+            ByteBuffer framed;
+            synchronized (NioHttpExchange.this) {
+                if (!headersSent) {
+                    throw new IOException("sendResponseHeaders() must be called before writing the body");
+                }
+                if (finished || noBody) {
+                    throw new IOException("The response is already complete");
+                }
+                if (chunked) {
+                    byte[] size = (Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+                    framed = ByteBuffer.allocate(size.length + length + CRLF.length);
+                    framed.put(size).put(bytes, offset, length).put(CRLF).flip();
+                } else {
+                    if (length > remaining) {
+                        throw new IOException("Response is longer than the declared Content-Length");
+                    }
+                    remaining -= length;
+                    framed = ByteBuffer.allocate(length);
+                    framed.put(bytes, offset, length).flip();
+                }
+            }
+            connection.write(framed);
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean lastChunk;
+            synchronized (NioHttpExchange.this) {
+                if (finished) {
+                    return;
+                }
+                lastChunk = headersSent && chunked;
+            }
+            try {
+                if (lastChunk) {
+                    connection.write(ByteBuffer.wrap(LAST_CHUNK));
+                }
+            } finally {
+                finish();
+            }
+        }
+    }
+}
@@ -0,0 +1,1080 @@
+package net.iozamudio.infrastructure.api;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.java_websocket.SocketChannelIOHelper;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketAdapter;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.Handshakedata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking HTTP/1.1 server for the local API: keep-alive, pipelined requests (answered in order)
+ * and the WebSocket upgrade all on one port. A few selector threads only move bytes; handlers still run
+ * on the executor through the regular {@link HttpHandler}/{@link Filter} chain, so routes work unchanged.
+ * The same protocol can also be served on Unix domain sockets for same-machine clients.
+ */
+final class NioHttpServer extends HttpServer {
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+    private static final long MAX_PENDING_BYTES = 1024 * 1024;
+    private static final long IDLE_TIMEOUT_MS = 30_000;
+    private static final int MAX_CHUNK_LINE_BYTES = 1024;
+    private static final int BODY_INCOMPLETE = -1;
+    private static final int BODY_TOO_LARGE = -2;
+    private static final long WS_PING_INTERVAL_MS = 30_000;
+    private static final long SWEEP_INTERVAL_MS = 1_000;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Reported as the peer of Unix domain socket connections, which have no IP address.
+     */
+    private static final InetSocketAddress LOCAL_PEER = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    private final int selectorThreads;
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final SocketListener socketListener = new SocketListener();
+    private volatile Executor executor = Runnable::run;
+    private volatile String webSocketPath;
+    private volatile List<Draft> webSocketDrafts;
+    private volatile WebSocketEndpoint webSocketEndpoint;
+    private final List<ServerSocketChannel> localChannels = new CopyOnWriteArrayList<>();
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] loops;
+
+    NioHttpServer(InetSocketAddress address, int selectorThreads) throws IOException {
+        this.selectorThreads = Math.max(1, selectorThreads);
+        bind(address, 0);
+    }
+
+    /**
+     * Upgrades requests for {@code path} to WebSocket connections served by {@code endpoint}.
+     */
+    void setWebSocketEndpoint(String path, List<Draft> drafts, WebSocketEndpoint endpoint) {
+        this.webSocketDrafts = List.copyOf(drafts);
+        this.webSocketEndpoint = endpoint;
+        this.webSocketPath = path;
+    }
+
+    @Override
+    public void bind(InetSocketAddress address, int backlog) throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server is already bound");
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, backlog);
+        serverChannel.configureBlocking(false);
+    }
+
+    /**
+     * Also accepts connections on a Unix domain socket; must be called before {@link #start()}.
+     * The socket file is removed again on {@link #stop(int)}.
+     */
+    void bindLocal(UnixDomainSocketAddress address) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.bind(address);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        localChannels.add(channel);
+    }
+
+    @Override
+    public void start() {
+        loops = new EventLoop[selectorThreads];
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop(i);
+            }
+            serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+            for (ServerSocketChannel channel : localChannels) {
+                channel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open selectors for the local API", e);
+        }
+
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor == null ? Runnable::run : executor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void stop(int delay) {
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+        }
+        for (ServerSocketChannel channel : localChannels) {
+            try {
+                UnixDomainSocketAddress address = (UnixDomainSocketAddress) channel.getLocalAddress();
+                channel.close();
+                Files.deleteIfExists(address.getPath());
+            } catch (IOException ignored) {
+            }
+        }
+        if (loops == null) {
+            return;
+        }
+
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        Context context = new Context(path, handler);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public HttpContext createContext(String path) {
+        return createContext(path, null);
+    }
+
+    @Override
+    public void removeContext(String path) {
+        if (!contexts.removeIf(context -> context.getPath().equals(path))) {
+            throw new IllegalArgumentException("No context for " + path);
+        }
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        contexts.remove(context);
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Longest context path that prefixes the request path, like {@link HttpServer} does.
+     */
+    private Context findContext(String path) {
+        Context best = null;
+        for (Context context : contexts) {
+            if (path.startsWith(context.getPath()) && (best == null || context.getPath().length() > best.getPath().length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    private void dispatch(NioHttpExchange exchange) {
+        try {
+            executor.execute(() -> {
+                Context context = (Context) exchange.getHttpContext();
+                try {
+                    new Filter.Chain(context.getFilters(), context.getHandler()).doFilter(exchange);
+                } catch (Exception e) {
+                    System.err.println("Local API handler failed for " + exchange.getRequestURI().getPath() + ": " + e);
+                    exchange.abort();
+                }
+            });
+        } catch (RuntimeException e) {
+            exchange.abort();
+        }
+    }
+
+    /**
+     * The application side of the WebSocket endpoint; the server owns the transport.
+     */
+    interface WebSocketEndpoint {
+        void onOpen(WebSocket conn, ClientHandshake handshake);
+
+        void onMessage(WebSocket conn, String message);
+
+        void onClose(WebSocket conn, int code, String reason, boolean remote);
+
+        void onError(WebSocket conn, Exception ex);
+    }
+
+    /**
+     * One selector and the connections registered with it. Other threads hand work over through
+     * {@link #execute(Runnable)}; interest ops and reads are only touched on this thread.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        private volatile boolean running = true;
+        private long lastSweepMs = System.currentTimeMillis();
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "LocalApiNio-" + (index + 1));
+            this.thread.setDaemon(true);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    if (tasks.isEmpty()) {
+                        selector.select(SWEEP_INTERVAL_MS);
+                    } else {
+                        selector.selectNow();
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+
+                    long nowMs = System.currentTimeMillis();
+                    if (nowMs - lastSweepMs >= SWEEP_INTERVAL_MS) {
+                        lastSweepMs = nowMs;
+                        sweep(nowMs);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Local API selector error: " + e.getMessage());
+                }
+            }
+
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept((ServerSocketChannel) key.channel());
+                return;
+            }
+
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isWritable()) {
+                    connection.flush();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.read(readBuffer);
+                }
+            } catch (IOException | RuntimeException e) {
+                connection.close();
+            }
+        }
+
+        private void accept(ServerSocketChannel listener) {
+            SocketChannel channel;
+            try {
+                while ((channel = listener.accept()) != null) {
+                    channel.configureBlocking(false);
+                    if (listener == serverChannel) {
+                        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    }
+                    EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                    SocketChannel accepted = channel;
+                    loop.execute(() -> loop.register(accepted));
+                }
+            } catch (IOException e) {
+                System.err.println("Local API accept failed: " + e.getMessage());
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                Connection connection = new Connection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        /**
+         * Closes idle keep-alive connections and pings sockets, dropping the ones that stopped answering.
+         */
+        private void sweep(long nowMs) {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.sweep(nowMs);
+                }
+            }
+        }
+    }
+
+    /**
+     * One accepted socket. Speaks HTTP until a request asks for the WebSocket endpoint, then hands every
+     * byte to a {@link WebSocketImpl}. HTTP output is queued here and written by the owning loop.
+     */
+    final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private SelectionKey key;
+        private ByteBuffer inbound = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private RequestHead pendingHead;
+        private boolean continueSent;
+        private NioHttpExchange exchange;
+        private boolean closeWhenFlushed;
+        private WebSocketImpl webSocket;
+        private long lastActivityMs = System.currentTimeMillis();
+        private volatile long lastPongMs = lastActivityMs;
+        private long lastPingMs = lastActivityMs;
+        private long pendingBytes;
+        private boolean closed;
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        InetSocketAddress remoteAddress() {
+            try {
+                return channel.getRemoteAddress() instanceof InetSocketAddress address ? address : LOCAL_PEER;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        InetSocketAddress localAddress() {
+            try {
+                return channel.getLocalAddress() instanceof InetSocketAddress address ? address : LOCAL_PEER;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private void read(ByteBuffer readBuffer) throws IOException {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                if (webSocket != null) {
+                    webSocket.eot();
+                }
+                close();
+                return;
+            }
+
+            lastActivityMs = System.currentTimeMillis();
+            readBuffer.flip();
+            if (webSocket != null) {
+                lastPongMs = lastActivityMs;
+                webSocket.decode(readBuffer);
+                return;
+            }
+
+            ensureInboundCapacity(readBuffer.remaining());
+            if (inbound == null) {
+                return;
+            }
+            inbound.put(readBuffer);
+            processInbound();
+        }
+
+        private void ensureInboundCapacity(int incoming) {
+            if (inbound.remaining() >= incoming) {
+                return;
+            }
+
+            int needed = inbound.position() + incoming;
+            int limit = pendingHead == null
+                    ? MAX_HEADER_BYTES + READ_BUFFER_BYTES
+                    : pendingHead.length + (pendingHead.chunked ? MAX_BODY_BYTES + MAX_HEADER_BYTES : pendingHead.contentLength) + READ_BUFFER_BYTES;
+            if (needed > limit) {
+                rejectAndClose(pendingHead == null ? 431 : 413);
+                inbound = null;
+                return;
+            }
+
+            ByteBuffer grown = ByteBuffer.allocate(Math.min(limit, Math.max(needed, inbound.capacity() * 2)));
+            inbound.flip();
+            grown.put(inbound);
+            inbound = grown;
+        }
+
+        /**
+         * Parses as many complete requests as are buffered, one at a time: the next pipelined request
+         * only starts once the previous exchange has finished, so responses leave in request order.
+         */
+        private void processInbound() {
+            while (exchange == null && webSocket == null && !closeWhenFlushed && !closed) {
+                byte[] buffered = inbound.array();
+                int available = inbound.position();
+
+                if (pendingHead == null) {
+                    int end = indexOfHeaderEnd(buffered, available);
+                    if (end < 0) {
+                        if (available > MAX_HEADER_BYTES) {
+                            rejectAndClose(431);
+                        }
+                        break;
+                    }
+
+                    try {
+                        pendingHead = RequestHead.parse(buffered, end);
+                    } catch (IllegalArgumentException e) {
+                        rejectAndClose(400);
+                        break;
+                    }
+                    continueSent = false;
+                    if (!pendingHead.chunked && pendingHead.contentLength > MAX_BODY_BYTES) {
+                        rejectAndClose(413);
+                        break;
+                    }
+                }
+
+                RequestHead head = pendingHead;
+                if (head.isWebSocketUpgrade() && head.path().equals(webSocketPath) && webSocketEndpoint != null) {
+                    upgrade(buffered, available);
+                    return;
+                }
+
+                int end;
+                if (head.chunked) {
+                    try {
+                        end = chunkedBodyEnd(buffered, head.length, available);
+                    } catch (IllegalArgumentException e) {
+                        rejectAndClose(400);
+                        break;
+                    }
+                    if (end == BODY_TOO_LARGE) {
+                        rejectAndClose(413);
+                        break;
+                    }
+                } else {
+                    end = available < head.length + head.contentLength ? BODY_INCOMPLETE : head.length + head.contentLength;
+                }
+                if (end == BODY_INCOMPLETE) {
+                    if (head.expectsContinue && !continueSent) {
+                        continueSent = true;
+                        enqueue(ByteBuffer.wrap(CONTINUE));
+                    }
+                    break;
+                }
+
+                byte[] body;
+                if (head.chunked) {
+                    body = decodeChunked(buffered, head.length, end);
+                } else {
+                    body = new byte[head.contentLength];
+                    System.arraycopy(buffered, head.length, body, 0, body.length);
+                }
+                consume(end);
+                pendingHead = null;
+                startExchange(head, body);
+            }
+            updateInterest();
+        }
+
+        private void startExchange(RequestHead head, byte[] body) {
+            Context context = findContext(head.path());
+            closeWhenFlushed = !head.keepAlive;
+            if (context == null || context.getHandler() == null) {
+                enqueue(ByteBuffer.wrap(NioHttpExchange.statusOnly(404, !head.keepAlive)));
+                return;
+            }
+
+            exchange = new NioHttpExchange(this, context, head, body);
+            dispatch(exchange);
+        }
+
+        /**
+         * Replays the buffered handshake (and anything sent after it) into a WebSocketImpl that owns the socket from now on.
+         */
+        private void upgrade(byte[] buffered, int available) {
+            WebSocketImpl socket = new WebSocketImpl(socketListener, webSocketDrafts);
+            socket.setSelectionKey(key);
+            socket.setChannel(channel);
+            webSocket = socket;
+            pendingHead = null;
+            ByteBuffer handshake = ByteBuffer.wrap(buffered, 0, available);
+            inbound = null;
+            key.interestOps(SelectionKey.OP_READ);
+            socket.decode(handshake);
+        }
+
+        /**
+         * Called from any thread once the current exchange has written its whole response.
+         */
+        void exchangeFinished(NioHttpExchange finished) {
+            loop.execute(() -> {
+                if (exchange != finished) {
+                    return;
+                }
+
+                exchange = null;
+                if (finished.mustCloseConnection()) {
+                    closeWhenFlushed = true;
+                }
+                if (!closed && inbound != null) {
+                    processInbound();
+                }
+                flushNow();
+            });
+        }
+
+        /**
+         * Queues response bytes from any thread. Blocks while earlier output for this connection is
+         * still waiting for a slow client, the same back-pressure a blocking socket would apply.
+         */
+        void write(ByteBuffer data) throws IOException {
+            synchronized (this) {
+                while (!closed && pendingBytes > MAX_PENDING_BYTES) {
+                    try {
+                        wait(SWEEP_INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while writing the response");
+                    }
+                }
+                if (closed) {
+                    throw new ClosedChannelException();
+                }
+                outbound.add(data);
+                pendingBytes += data.remaining();
+            }
+            scheduleFlush();
+        }
+
+        private void enqueue(ByteBuffer data) {
+            synchronized (this) {
+                outbound.add(data);
+                pendingBytes += data.remaining();
+            }
+            flushNow();
+        }
+
+        private void scheduleFlush() {
+            if (flushScheduled.compareAndSet(false, true)) {
+                loop.execute(() -> {
+                    flushScheduled.set(false);
+                    flushNow();
+                });
+            }
+        }
+
+        private void flushNow() {
+            try {
+                flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (webSocket != null) {
+                boolean drained = SocketChannelIOHelper.batch(webSocket, channel);
+                if (key.isValid()) {
+                    key.interestOps(drained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                return;
+            }
+
+            synchronized (this) {
+                ByteBuffer head;
+                while ((head = outbound.peek()) != null) {
+                    int written = channel.write(head);
+                    pendingBytes -= written;
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    outbound.poll();
+                }
+                notifyAll();
+            }
+            updateInterest();
+        }
+
+        private void updateInterest() {
+            if (closed || webSocket != null || !key.isValid()) {
+                return;
+            }
+
+            boolean hasOutput;
+            synchronized (this) {
+                hasOutput = !outbound.isEmpty();
+            }
+            if (!hasOutput && closeWhenFlushed && exchange == null) {
+                close();
+                return;
+            }
+
+            int ops = hasOutput ? SelectionKey.OP_WRITE : 0;
+            // Stop reading while a request is in flight; pipelined bytes wait in the socket buffer.
+            if (exchange == null && !closeWhenFlushed) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        private void sweep(long nowMs) {
+            if (webSocket != null) {
+                if (!webSocket.isOpen()) {
+                    return;
+                }
+                if (nowMs - lastPongMs > WS_PING_INTERVAL_MS * 3 / 2) {
+                    webSocket.closeConnection(CloseFrame.ABNORMAL_CLOSE, "The connection was not responding");
+                } else if (nowMs - lastPingMs >= WS_PING_INTERVAL_MS) {
+                    lastPingMs = nowMs;
+                    webSocket.sendPing();
+                }
+                return;
+            }
+
+            boolean idle;
+            synchronized (this) {
+                idle = exchange == null && outbound.isEmpty();
+            }
+            if (idle && nowMs - lastActivityMs > IDLE_TIMEOUT_MS) {
+                close();
+            }
+        }
+
+        private void rejectAndClose(int status) {
+            closeWhenFlushed = true;
+            enqueue(ByteBuffer.wrap(NioHttpExchange.statusOnly(status, true)));
+        }
+
+        private void consume(int count) {
+            int remaining = inbound.position() - count;
+            System.arraycopy(inbound.array(), count, inbound.array(), 0, remaining);
+            inbound.position(remaining);
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                outbound.clear();
+                pendingBytes = 0;
+                notifyAll();
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            // A reset or I/O error never reaches the WebSocket decoder, so end the session here
+            // or the endpoint keeps queueing frames for a dead peer.
+            if (webSocket != null && !webSocket.isClosed()) {
+                webSocket.closeConnection(CloseFrame.ABNORMAL_CLOSE, "Connection lost", true);
+            }
+        }
+
+        /**
+         * Closes from any thread, e.g. when a handler fails halfway through a response.
+         */
+        void abort() {
+            loop.execute(this::close);
+        }
+
+        private static int indexOfHeaderEnd(byte[] bytes, int length) {
+            for (int i = 3; i < length; i++) {
+                if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * End offset of a complete chunked body that starts at {@code start} (trailers included), or
+     * {@link #BODY_INCOMPLETE} / {@link #BODY_TOO_LARGE}. Only skips over chunk data, so it is cheap
+     * to repeat as more bytes arrive.
+     *
+     * @throws IllegalArgumentException when the framing is malformed
+     */
+    static int chunkedBodyEnd(byte[] bytes, int start, int available) {
+        int position = start;
+        long total = 0;
+        while (true) {
+            int lineEnd = indexOfCrlf(bytes, position, available);
+            if (lineEnd < 0) {
+                if (available - position > MAX_CHUNK_LINE_BYTES) {
+                    throw new IllegalArgumentException("Chunk size line too long");
+                }
+                return BODY_INCOMPLETE;
+            }
+
+            long size = parseChunkSize(bytes, position, lineEnd);
+            position = lineEnd + 2;
+            if (size == 0) {
+                // Trailer section: header lines up to an empty line.
+                while (true) {
+                    int trailerEnd = indexOfCrlf(bytes, position, available);
+                    if (trailerEnd < 0) {
+                        if (available - position > MAX_HEADER_BYTES) {
+                            throw new IllegalArgumentException("Trailers too long");
+                        }
+                        return BODY_INCOMPLETE;
+                    }
+                    boolean empty = trailerEnd == position;
+                    position = trailerEnd + 2;
+                    if (empty) {
+                        return position;
+                    }
+                }
+            }
+
+            total += size;
+            if (total > MAX_BODY_BYTES) {
+                return BODY_TOO_LARGE;
+            }
+            if (available < position + size + 2) {
+                return BODY_INCOMPLETE;
+            }
+            position += (int) size;
+            if (bytes[position] != '\r' || bytes[position + 1] != '\n') {
+                throw new IllegalArgumentException("Chunk data not followed by CRLF");
+            }
+            position += 2;
+        }
+    }
+
+    /**
+     * Concatenates the chunk data of a body already validated by {@link #chunkedBodyEnd}.
+     */
+    static byte[] decodeChunked(byte[] bytes, int start, int end) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int position = start;
+        while (position < end) {
+            int lineEnd = indexOfCrlf(bytes, position, end);
+            int size = (int) parseChunkSize(bytes, position, lineEnd);
+            position = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            body.write(bytes, position, size);
+            position += size + 2;
+        }
+        return body.toByteArray();
+    }
+
+    private static long parseChunkSize(byte[] bytes, int from, int to) {
+        long size = 0;
+        int digits = 0;
+        for (int i = from; i < to && bytes[i] != ';'; i++) {
+            int digit = Character.digit(bytes[i], 16);
+            if (digit < 0) {
+                if (bytes[i] == ' ' || bytes[i] == '\t') {
+                    continue;
+                }
+                throw new IllegalArgumentException("Invalid chunk size");
+            }
+            if (++digits > 8) {
+                throw new IllegalArgumentException("Chunk size too large");
+            }
+            size = size * 16 + digit;
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException("Missing chunk size");
+        }
+        return size;
+    }
+
+    private static int indexOfCrlf(byte[] bytes, int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Request line and headers of one request; {@code length} counts the bytes up to the blank line.
+     */
+    static final class RequestHead {
+        final String method;
+        final String target;
+        final URI uri;
+        final String protocol;
+        final Headers headers;
+        final int length;
+        final int contentLength;
+        final boolean chunked;
+        final boolean keepAlive;
+        final boolean expectsContinue;
+
+        private RequestHead(String method, String target, String protocol, Headers headers, int length) {
+            this.method = method;
+            this.target = target;
+            try {
+                this.uri = new URI(target);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid request target");
+            }
+            this.protocol = protocol;
+            this.headers = headers;
+            this.length = length;
+
+            String rawLength = headers.getFirst("Content-Length");
+            try {
+                this.contentLength = rawLength == null ? 0 : Integer.parseInt(rawLength.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid Content-Length");
+            }
+            if (contentLength < 0) {
+                throw new IllegalArgumentException("Invalid Content-Length");
+            }
+
+            String transferEncoding = lower(headers.getFirst("Transfer-Encoding"));
+            // Only chunked can frame a request body; any other final coding leaves its length unknown.
+            if (!transferEncoding.isEmpty() && !transferEncoding.trim().endsWith("chunked")) {
+                throw new IllegalArgumentException("Unsupported Transfer-Encoding");
+            }
+            this.chunked = !transferEncoding.isEmpty();
+            String connection = lower(headers.getFirst("Connection"));
+            this.keepAlive = "HTTP/1.1".equals(protocol) ? !connection.contains("close") : connection.contains("keep-alive");
+            this.expectsContinue = lower(headers.getFirst("Expect")).contains("100-continue");
+        }
+
+        static RequestHead parse(byte[] bytes, int length) {
+            String[] lines = new String(bytes, 0, length, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                throw new IllegalArgumentException("Malformed request line");
+            }
+
+            Headers headers = new Headers();
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i];
+                int colon = line.indexOf(':');
+                if (colon <= 0 || Character.isWhitespace(line.charAt(0))) {
+                    throw new IllegalArgumentException("Malformed header line");
+                }
+                headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+            return new RequestHead(requestLine[0], requestLine[1], requestLine[2], headers, length);
+        }
+
+        String path() {
+            return uri.getPath() == null ? "" : uri.getPath();
+        }
+
+        boolean isWebSocketUpgrade() {
+            return "GET".equals(method) && lower(headers.getFirst("Upgrade")).contains("websocket");
+        }
+
+        private static String lower(String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Bridges Java-WebSocket callbacks to the endpoint and its writes back to the owning event loop.
+     */
+    private final class SocketListener extends WebSocketAdapter {
+        @Override
+        public void onWebsocketOpen(WebSocket conn, Handshakedata handshake) {
+            webSocketEndpoint.onOpen(conn, (ClientHandshake) handshake);
+        }
+
+        @Override
+        public void onWebsocketMessage(WebSocket conn, String message) {
+            webSocketEndpoint.onMessage(conn, message);
+        }
+
+        @Override
+        public void onWebsocketMessage(WebSocket conn, ByteBuffer blob) {
+        }
+
+        @Override
+        public void onWebsocketClose(WebSocket conn, int code, String reason, boolean remote) {
+            webSocketEndpoint.onClose(conn, code, reason, remote);
+        }
+
+        @Override
+        public void onWebsocketClosing(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onWebsocketCloseInitiated(WebSocket conn, int code, String reason) {
+        }
+
+        @Override
+        public void onWebsocketError(WebSocket conn, Exception ex) {
+            webSocketEndpoint.onError(conn, ex);
+        }
+
+        @Override
+        public void onWebsocketPong(WebSocket conn, Framedata frame) {
+            Connection connection = connectionOf(conn);
+            if (connection != null) {
+                connection.lastPongMs = System.currentTimeMillis();
+            }
+        }
+
+        @Override
+        public void onWriteDemand(WebSocket conn) {
+            Connection connection = connectionOf(conn);
+            if (connection != null) {
+                connection.scheduleFlush();
+            }
+        }
+
+        @Override
+        public InetSocketAddress getLocalSocketAddress(WebSocket conn) {
+            Connection connection = connectionOf(conn);
+            return connection == null ? null : connection.localAddress();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteSocketAddress(WebSocket conn) {
+            Connection connection = connectionOf(conn);
+            return connection == null ? null : connection.remoteAddress();
+        }
+
+        private Connection connectionOf(WebSocket conn) {
+            SelectionKey key = ((WebSocketImpl) conn).getSelectionKey();
+            return key == null ? null : (Connection) key.attachment();
+        }
+    }
+
+    private final class Context extends HttpContext {
+        private final String path;
+        private final List<Filter> filters = new CopyOnWriteArrayList<>();
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private HttpHandler handler;
+        private Authenticator authenticator;
+
+        Context(String path, HttpHandler handler) {
+            this.path = path;
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return NioHttpServer.this;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator authenticator) {
+            Authenticator previous = this.authenticator;
+            this.authenticator = authenticator;
+            return previous;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return authenticator;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package net.iozamudio.infrastructure.api;
+
+import com.google.gson.Gson;
+import net.iozamudio.model.LyricsLine;
+import net.iozamudio.model.MediaInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Immutable state published by the API for one real state change (RFC-0001 §8.1).
+ * Track, lyrics and capabilities are JSON-encoded once here; rendering a frame only
+ * writes the playback clock around those cached bytes.
+ */
+final class PlaybackStateSnapshot {
+    private static final byte[] CAPABILITIES_JSON = ("{\"canPlayPause\":true,\"canSeek\":true,\"canNext\":true,"
+            + "\"canPrevious\":true,\"canFocusSource\":true}").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LYRICS_HEAD = ",\"lyrics\":{".getBytes(StandardCharsets.UTF_8);
+    private static final double POSITION_TOLERANCE_SECONDS = 1.0;
+
+    private final long version;
+    private final MediaInfo info;
+    private final String status;
+    private final double basePositionSeconds;
+    private final double durationSeconds;
+    private final long capturedAtMs;
+    private final long capturedAtServerMs;
+    private final String clockJson;
+    private final String source;
+    private final String thumbnailHd;
+    private final String artworkHash;
+    private final List<LyricsLine> lyrics;
+    private final String lyricsKey;
+    private final String lyricsStatus;
+    private final byte[] statusJson;
+    private final byte[] trackJson;
+    private final byte[] trackRefJson;
+    private final byte[] lyricsLinesJson;
+    private final byte[] lyricsBodyJson;
+    private final byte[] lyricsRefBodyJson;
+    private final Map<Object, byte[]> encodedFields = new ConcurrentHashMap<>();
+
+    private PlaybackStateSnapshot(
+            long version,
+            MediaInfo info,
+            double basePositionSeconds,
+            long capturedAtMs,
+            long capturedAtServerMs,
+            String source,
+            String thumbnailHd,
+            String artworkHash,
+            List<LyricsLine> lyrics,
+            String lyricsKey,
+            String lyricsStatus,
+            byte[] statusJson,
+            byte[] trackJson,
+            byte[] trackRefJson,
+            byte[] lyricsLinesJson,
+            byte[] lyricsBodyJson,
+            byte[] lyricsRefBodyJson) {
+        this.version = version;
+        this.info = info;
+        this.status = info.status().toUpperCase(Locale.ROOT);
+        this.basePositionSeconds = basePositionSeconds;
+        this.durationSeconds = Math.max(0, info.duration());
+        this.capturedAtMs = capturedAtMs;
+        this.capturedAtServerMs = capturedAtServerMs;
+        this.clockJson = "{\"positionSeconds\":" + basePositionSeconds
+                + ",\"rate\":" + (isPlaying() ? 1.0 : 0.0)
+                + ",\"serverTimeMs\":" + capturedAtServerMs + "}";
+        this.source = source;
+        this.thumbnailHd = thumbnailHd;
+        this.artworkHash = artworkHash;
+        this.lyrics = lyrics;
+        this.lyricsKey = lyricsKey;
+        this.lyricsStatus = lyricsStatus;
+        this.statusJson = statusJson;
+        this.trackJson = trackJson;
+        this.trackRefJson = trackRefJson;
+        this.lyricsLinesJson = lyricsLinesJson;
+        this.lyricsBodyJson = lyricsBodyJson;
+        this.lyricsRefBodyJson = lyricsRefBodyJson;
+    }
+
+    /**
+     * Builds the next snapshot, reusing the encoded fragments of {@code previous} that did not change.
+     * {@code artworkHash} is the content hash of the thumbnail, or {@code null} when there is none;
+     * {@code lyricsStatus} is {@code pending}, {@code ready} or {@code none}.
+     * The playback clock is carried over unless there was a discontinuity (see {@link #continuesClock}).
+     */
+    static PlaybackStateSnapshot create(
+            Gson gson,
+            long version,
+            MediaInfo info,
+            String source,
+            String thumbnailHd,
+            String artworkHash,
+            List<LyricsLine> lyrics,
+            String lyricsStatus,
+            PlaybackStateSnapshot previous,
+            long nowMs) {
+        boolean sameTrack = previous != null
+                && previous.info.artist().equals(info.artist())
+                && previous.info.title().equals(info.title())
+                && previous.info.thumbnail().equals(info.thumbnail())
+                && previous.thumbnailHd.equals(thumbnailHd)
+                && Objects.equals(previous.artworkHash, artworkHash)
+                && previous.source.equals(source);
+
+        byte[] trackJson;
+        byte[] trackRefJson;
+        if (sameTrack) {
+            trackJson = previous.trackJson;
+            trackRefJson = previous.trackRefJson;
+        } else {
+            Map<String, Object> track = new LinkedHashMap<>();
+            track.put("artist", info.artist());
+            track.put("title", info.title());
+            track.put("thumbnailBase64", info.thumbnail());
+            track.put("thumbnailHdBase64", thumbnailHd);
+            track.put("source", source);
+            track.put("artworkHash", artworkHash);
+            trackJson = gson.toJson(track).getBytes(StandardCharsets.UTF_8);
+
+            track.remove("thumbnailBase64");
+            track.remove("thumbnailHdBase64");
+            trackRefJson = gson.toJson(track).getBytes(StandardCharsets.UTF_8);
+        }
+
+        byte[] lyricsLinesJson;
+        byte[] lyricsBodyJson;
+        byte[] lyricsRefBodyJson;
+        String lyricsKey;
+        if (previous != null && previous.lyrics == lyrics && previous.lyricsStatus.equals(lyricsStatus)) {
+            lyricsLinesJson = previous.lyricsLinesJson;
+            lyricsBodyJson = previous.lyricsBodyJson;
+            lyricsRefBodyJson = previous.lyricsRefBodyJson;
+            lyricsKey = previous.lyricsKey;
+        } else {
+            lyricsLinesJson = gson.toJson(lyrics).getBytes(StandardCharsets.UTF_8);
+            lyricsKey = lyrics.isEmpty() ? null : ContentStore.hashOf(lyricsLinesJson);
+            byte[] refFields = (",\"key\":" + gson.toJson(lyricsKey)
+                    + ",\"lineCount\":" + lyrics.size()
+                    + ",\"status\":" + gson.toJson(lyricsStatus))
+                    .getBytes(StandardCharsets.UTF_8);
+            lyricsBodyJson = JsonBytes.concat("\"lines\":".getBytes(StandardCharsets.UTF_8), lyricsLinesJson, refFields);
+            lyricsRefBodyJson = Arrays.copyOfRange(refFields, 1, refFields.length);
+        }
+
+        byte[] statusJson = previous != null && previous.info.status().equals(info.status())
+                ? previous.statusJson
+                : gson.toJson(info.status()).getBytes(StandardCharsets.UTF_8);
+
+        boolean sameClock = previous != null && previous.continuesClock(info, nowMs);
+        return new PlaybackStateSnapshot(
+                version,
+                info,
+                sameClock ? previous.basePositionSeconds : Math.max(0, info.position()),
+                sameClock ? previous.capturedAtMs : nowMs,
+                sameClock ? previous.capturedAtServerMs : ServerClock.nowMs(),
+                source, thumbnailHd, artworkHash, lyrics, lyricsKey,
+                lyricsStatus, statusJson, trackJson, trackRefJson, lyricsLinesJson, lyricsBodyJson, lyricsRefBodyJson);
+    }
+
+    /**
+     * True when {@code candidate} is the same track, status and duration, and its reported position agrees
+     * with this clock's extrapolation within {@link #POSITION_TOLERANCE_SECONDS}. Anything else (a seek,
+     * pause or track change) is a discontinuity that starts a new clock.
+     */
+    private boolean continuesClock(MediaInfo candidate, long nowMs) {
+        if (!info.artist().equals(candidate.artist())
+                || !info.title().equals(candidate.title())
+                || !info.status().equals(candidate.status())
+                || Double.compare(info.duration(), candidate.duration()) != 0) {
+            return false;
+        }
+
+        if (Double.compare(info.position(), candidate.position()) == 0) {
+            return true;
+        }
+        return isPlaying() && Math.abs(candidate.position() - positionAt(nowMs)) <= POSITION_TOLERANCE_SECONDS;
+    }
+
+    /**
+     * True when {@code candidate} describes the same state, so the current snapshot keeps extrapolating.
+     */
+    boolean isSameState(
+            MediaInfo candidate,
+            String candidateSource,
+            String candidateThumbnailHd,
+            List<LyricsLine> candidateLyrics,
+            String candidateLyricsStatus,
+            long nowMs) {
+        return (info == candidate
+                || info.equals(candidate)
+                || (info.thumbnail().equals(candidate.thumbnail()) && continuesClock(candidate, nowMs)))
+                && lyrics == candidateLyrics
+                && lyricsStatus.equals(candidateLyricsStatus)
+                && source.equals(candidateSource)
+                && Objects.equals(thumbnailHd, candidateThumbnailHd);
+    }
+
+    long version() {
+        return version;
+    }
+
+    long capturedAtMs() {
+        return capturedAtMs;
+    }
+
+    static byte[] capabilitiesJson() {
+        return CAPABILITIES_JSON;
+    }
+
+    /**
+     * A single field encoded once for this snapshot, for projections that do not use the shared fragments.
+     */
+    byte[] encodedField(Object key, Supplier<byte[]> encoder) {
+        return encodedFields.computeIfAbsent(key, ignored -> encoder.get());
+    }
+
+    long capturedAtServerMs() {
+        return capturedAtServerMs;
+    }
+
+    /**
+     * {@code {"positionSeconds","rate","serverTimeMs"}}: the position at {@code serverTimeMs} on {@link ServerClock}.
+     */
+    String clockJson() {
+        return clockJson;
+    }
+
+    MediaInfo info() {
+        return info;
+    }
+
+    List<LyricsLine> lyrics() {
+        return lyrics;
+    }
+
+    String source() {
+        return source;
+    }
+
+    String thumbnailHd() {
+        return thumbnailHd;
+    }
+
+    String artworkHash() {
+        return artworkHash;
+    }
+
+    String lyricsKey() {
+        return lyricsKey;
+    }
+
+    String lyricsStatus() {
+        return lyricsStatus;
+    }
+
+    double durationSeconds() {
+        return durationSeconds;
+    }
+
+    byte[] lyricsLinesJson() {
+        return lyricsLinesJson;
+    }
+
+    boolean isPlaying() {
+        return "PLAYING".equals(status);
+    }
+
+    double positionAt(long nowMs) {
+        if (!isPlaying()) {
+            return basePositionSeconds;
+        }
+
+        double extrapolated = basePositionSeconds + Math.max(0, (nowMs - capturedAtMs) / 1000.0);
+        return durationSeconds > 0 ? Math.min(durationSeconds, extrapolated) : extrapolated;
+    }
+
+    /**
+     * Wall-clock time of the next change that happens without new input while playing: the start of the
+     * next lyric line or the end of the track. {@link Long#MAX_VALUE} when paused or when there is none.
+     */
+    long nextTimelineEventAtMs(long nowMs) {
+        if (!isPlaying()) {
+            return Long.MAX_VALUE;
+        }
+
+        double position = positionAt(nowMs);
+        double next = durationSeconds > position ? durationSeconds : Double.MAX_VALUE;
+        int nextLine = activeLyricsIndexAt(position) + 1;
+        if (nextLine < lyrics.size()) {
+            next = Math.min(next, lyrics.get(nextLine).timeSeconds());
+        }
+        if (next == Double.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+
+        // One extra millisecond so the frame rendered then is already past the boundary.
+        return nowMs + (long) Math.ceil((next - position) * 1000) + 1;
+    }
+
+    int activeLyricsIndexAt(double positionSeconds) {
+        int low = 0;
+        int high = lyrics.size() - 1;
+        int active = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lyrics.get(mid).timeSeconds() <= positionSeconds) {
+                active = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return active;
+    }
+
+    StateFrame render(long nowMs) {
+        double position = positionAt(nowMs);
+        int activeIndex = activeLyricsIndexAt(position);
+        double progress = durationSeconds <= 0 ? 0 : Math.min(1.0, Math.max(0, position / durationSeconds));
+
+        byte[] head = ("{\"timestamp\":\"" + Instant.ofEpochMilli(nowMs) + "\",\"playback\":{\"status\":")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] clock = (",\"positionSeconds\":" + position
+                + ",\"durationSeconds\":" + durationSeconds
+                + ",\"progress\":" + progress
+                + ",\"clock\":" + clockJson
+                + "},\"track\":").getBytes(StandardCharsets.UTF_8);
+        byte[] lyricsTail = (",\"activeIndex\":" + activeIndex + "},\"capabilities\":").getBytes(StandardCharsets.UTF_8);
+
+        return new StateFrame(this, nowMs, position, progress, activeIndex, JsonBytes.concat(head, statusJson, clock), lyricsTail);
+    }
+
+    /**
+     * Encodes a full state around the per-frame clock. With {@code inline} the track carries the
+     * base64 artwork and the lyrics carry every line; otherwise only their content hashes.
+     */
+    byte[] encode(byte[] clockJson, byte[] lyricsTail, boolean inline) {
+        return JsonBytes.concat(
+                clockJson,
+                inline ? trackJson : trackRefJson,
+                LYRICS_HEAD,
+                inline ? lyricsBodyJson : lyricsRefBodyJson,
+                lyricsTail,
+                CAPABILITIES_JSON,
+                JsonBytes.CLOSE_OBJECT);
+    }
+}
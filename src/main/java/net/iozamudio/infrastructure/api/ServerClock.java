@@ -0,0 +1,16 @@
+package net.iozamudio.infrastructure.api;
+
+/**
+ * Monotonic milliseconds since the API was loaded. It is the time base of {@code playback.clock}
+ * and of socket pongs, so clients can estimate their offset without trusting the host's wall clock.
+ */
+final class ServerClock {
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private ServerClock() {
+    }
+
+    static long nowMs() {
+        return (System.nanoTime() - ORIGIN_NANOS) / 1_000_000;
+    }
+}
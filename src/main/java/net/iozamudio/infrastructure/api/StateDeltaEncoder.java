@@ -0,0 +1,146 @@
+package net.iozamudio.infrastructure.api;
+
+import com.google.gson.Gson;
+import net.iozamudio.model.MediaInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Encodes the v2 WebSocket protocol: a full {@code snapshot} message on subscribe or resync,
+ * then {@code patch} messages that only carry the fields that changed, keyed by dotted path.
+ * Artwork and lyrics travel as content hashes; clients fetch them from {@code /artwork} and {@code /lyrics}.
+ */
+final class StateDeltaEncoder {
+    static final int TOPIC_PLAYBACK = 1;
+    static final int TOPIC_TRACK = 1 << 1;
+    static final int TOPIC_LYRICS = 1 << 2;
+    static final int TOPIC_ARTWORK = 1 << 3;
+    static final int ALL_TOPICS = TOPIC_PLAYBACK | TOPIC_TRACK | TOPIC_LYRICS | TOPIC_ARTWORK;
+    /**
+     * Not a topic: the client extrapolates from {@code playback.clock}, so position and progress are left out.
+     */
+    static final int CLOCK_SYNC = 1 << 4;
+
+    private StateDeltaEncoder() {
+    }
+
+    /**
+     * Bit for a subscription topic name, or 0 when the name is unknown.
+     */
+    static int topicBit(String name) {
+        if (name == null) {
+            return 0;
+        }
+
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "playback" -> TOPIC_PLAYBACK;
+            case "track" -> TOPIC_TRACK;
+            case "lyrics" -> TOPIC_LYRICS;
+            case "artwork" -> TOPIC_ARTWORK;
+            default -> 0;
+        };
+    }
+
+    /**
+     * {@code stream} identifies this server run; a {@code seq} is only meaningful within the same stream.
+     */
+    static byte[] encodeSnapshot(String stream, long seq, StateFrame frame) {
+        return JsonBytes.withRawField(
+                "{\"type\":\"snapshot\",\"stream\":\"" + stream + "\",\"seq\":" + seq + "}", "state", frame.compactJson());
+    }
+
+    /**
+     * Returns the patch that turns {@code from} (the state at {@code baseSeq}) into {@code to}, limited to
+     * the fields of {@code topics}, or {@code null} when none of them changed.
+     */
+    static byte[] encodePatch(Gson gson, long seq, long baseSeq, StateFrame from, StateFrame to, int topics) {
+        PatchWriter patch = new PatchWriter(gson, topics);
+        PlaybackStateSnapshot previous = from.snapshot();
+        PlaybackStateSnapshot current = to.snapshot();
+
+        if (previous != current) {
+            MediaInfo before = previous.info();
+            MediaInfo after = current.info();
+            patch.string(TOPIC_PLAYBACK, "playback.status", before.status(), after.status());
+            patch.number(TOPIC_PLAYBACK, "playback.durationSeconds", previous.durationSeconds(), current.durationSeconds());
+            if (previous.capturedAtServerMs() != current.capturedAtServerMs()) {
+                patch.raw(TOPIC_PLAYBACK, "playback.clock", current.clockJson().getBytes(StandardCharsets.UTF_8));
+            }
+            patch.string(TOPIC_TRACK, "track.artist", before.artist(), after.artist());
+            patch.string(TOPIC_TRACK, "track.title", before.title(), after.title());
+            patch.string(TOPIC_TRACK, "track.source", previous.source(), current.source());
+            patch.string(TOPIC_ARTWORK, "track.artworkHash", previous.artworkHash(), current.artworkHash());
+            if (previous.lyrics() != current.lyrics()) {
+                patch.string(TOPIC_LYRICS, "lyrics.key", previous.lyricsKey(), current.lyricsKey());
+                patch.number(TOPIC_LYRICS, "lyrics.lineCount", previous.lyrics().size(), current.lyrics().size());
+            }
+            patch.string(TOPIC_LYRICS, "lyrics.status", previous.lyricsStatus(), current.lyricsStatus());
+        }
+
+        if ((topics & CLOCK_SYNC) == 0) {
+            patch.number(TOPIC_PLAYBACK, "playback.positionSeconds", from.positionSeconds(), to.positionSeconds());
+            patch.number(TOPIC_PLAYBACK, "playback.progress", from.progress(), to.progress());
+        }
+        if (from.activeLyricsIndex() != to.activeLyricsIndex()) {
+            patch.raw(TOPIC_LYRICS, "lyrics.activeIndex", String.valueOf(to.activeLyricsIndex()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (patch.isEmpty()) {
+            return null;
+        }
+
+        String head = "{\"type\":\"patch\",\"seq\":" + seq
+                + ",\"baseSeq\":" + baseSeq
+                + ",\"timestamp\":\"" + Instant.ofEpochMilli(to.renderedAtMs()) + "\",\"set\":";
+        return JsonBytes.concat(head.getBytes(StandardCharsets.UTF_8), patch.finish(), JsonBytes.CLOSE_OBJECT);
+    }
+
+    private static final class PatchWriter {
+        private final Gson gson;
+        private final int topics;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        private int fields;
+
+        PatchWriter(Gson gson, int topics) {
+            this.gson = gson;
+            this.topics = topics;
+            out.write('{');
+        }
+
+        void string(int topic, String path, String before, String after) {
+            if ((topics & topic) != 0 && !Objects.equals(before, after)) {
+                raw(topic, path, gson.toJson(after).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void number(int topic, String path, double before, double after) {
+            if ((topics & topic) != 0 && Double.compare(before, after) != 0) {
+                raw(topic, path, String.valueOf(after).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void raw(int topic, String path, byte[] value) {
+            if ((topics & topic) == 0) {
+                return;
+            }
+            if (fields++ > 0) {
+                out.write(',');
+            }
+            out.writeBytes(("\"" + path + "\":").getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(value);
+        }
+
+        boolean isEmpty() {
+            return fields == 0;
+        }
+
+        byte[] finish() {
+            out.write('}');
+            return out.toByteArray();
+        }
+    }
+}
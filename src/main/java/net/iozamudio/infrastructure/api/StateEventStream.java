@@ -0,0 +1,305 @@
+package net.iozamudio.infrastructure.api;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-Sent Events fan-out for {@code /state/stream} (RFC-0001 §6.3).
+ * One event per snapshot version, encoded once and fanned out from a single thread into a bounded
+ * outbox per subscriber, with a bounded history so reconnecting clients can resume via {@code Last-Event-ID}.
+ * Outboxes are written by a separate pool, so a client that stops reading only stalls its own writer;
+ * once its outbox overflows or a write hangs too long it is disconnected.
+ */
+final class StateEventStream {
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RETRY = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final long MAX_QUEUED_BYTES = 1024 * 1024;
+    private static final long STALL_TIMEOUT_MS = 30_000;
+
+    private final int historySize;
+    private final Deque<Event> history = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService writer;
+    private final ExecutorService drainers;
+    private final LongAdder slowDisconnects = new LongAdder();
+
+    StateEventStream(int historySize) {
+        this.historySize = Math.max(1, historySize);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LocalApiSse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger drainerIds = new AtomicInteger();
+        this.drainers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "LocalApiSseWriter-" + drainerIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    long slowDisconnectCount() {
+        return slowDisconnects.sum();
+    }
+
+    /**
+     * Records a new snapshot and sends it to every subscriber. Callers publish in version order.
+     */
+    void publish(PlaybackStateSnapshot snapshot) {
+        Event event = new Event(snapshot);
+        synchronized (history) {
+            history.addLast(event);
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+        }
+
+        if (!subscribers.isEmpty()) {
+            writer.execute(() -> {
+                for (Subscriber subscriber : subscribers) {
+                    send(subscriber, event);
+                }
+            });
+        }
+    }
+
+    /**
+     * Takes over an exchange whose 200 headers were already sent. Replays the events after
+     * {@code lastEventId} when they are still in the history, otherwise starts from {@code current}.
+     */
+    void subscribe(HttpExchange exchange, boolean inline, String lastEventId, PlaybackStateSnapshot current) {
+        Subscriber subscriber = new Subscriber(exchange, inline);
+        writer.execute(() -> {
+            if (!enqueue(subscriber, RETRY)) {
+                return;
+            }
+
+            for (Event event : replayFor(lastEventId, current)) {
+                if (!send(subscriber, event)) {
+                    return;
+                }
+            }
+            subscribers.add(subscriber);
+        });
+    }
+
+    void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        writer.execute(() -> {
+            for (Subscriber subscriber : subscribers) {
+                enqueue(subscriber, HEARTBEAT);
+            }
+        });
+    }
+
+    void close() {
+        writer.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            drop(subscriber);
+        }
+        subscribers.clear();
+        drainers.shutdownNow();
+    }
+
+    private List<Event> replayFor(String lastEventId, PlaybackStateSnapshot current) {
+        long lastId = parseEventId(lastEventId);
+        List<Event> replay = new ArrayList<>();
+        synchronized (history) {
+            Event oldest = history.peekFirst();
+            Event latest = history.peekLast();
+            if (lastId >= 0 && oldest != null && lastId >= oldest.id - 1 && lastId <= latest.id) {
+                for (Event event : history) {
+                    if (event.id > lastId) {
+                        replay.add(event);
+                    }
+                }
+                return replay;
+            }
+
+            replay.add(latest != null && latest.id >= current.version() ? latest : new Event(current));
+        }
+        return replay;
+    }
+
+    private boolean send(Subscriber subscriber, Event event) {
+        if (event.id <= subscriber.lastSentId) {
+            return true;
+        }
+
+        subscriber.lastSentId = event.id;
+        return enqueue(subscriber, event.encoded(subscriber.inline));
+    }
+
+    /**
+     * Queues a payload without blocking; a subscriber over its byte budget or stuck in one write
+     * past the stall timeout is disconnected instead.
+     */
+    private boolean enqueue(Subscriber subscriber, byte[] payload) {
+        boolean startDrain = false;
+        boolean slow;
+        synchronized (subscriber) {
+            if (subscriber.dropped) {
+                return false;
+            }
+            long writeStartedMs = subscriber.writeStartedMs;
+            slow = subscriber.queuedBytes + payload.length > MAX_QUEUED_BYTES
+                    || writeStartedMs != 0 && System.currentTimeMillis() - writeStartedMs > STALL_TIMEOUT_MS;
+            if (!slow) {
+                subscriber.outbox.addLast(payload);
+                subscriber.queuedBytes += payload.length;
+                if (!subscriber.draining) {
+                    subscriber.draining = true;
+                    startDrain = true;
+                }
+            }
+        }
+
+        if (slow) {
+            slowDisconnects.increment();
+            drop(subscriber);
+            return false;
+        }
+        if (startDrain) {
+            try {
+                drainers.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                drop(subscriber);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drain(Subscriber subscriber) {
+        OutputStream body = subscriber.exchange.getResponseBody();
+        while (true) {
+            byte[] payload;
+            synchronized (subscriber) {
+                payload = subscriber.dropped ? null : subscriber.outbox.pollFirst();
+                if (payload == null) {
+                    subscriber.draining = false;
+                    return;
+                }
+                subscriber.queuedBytes -= payload.length;
+                subscriber.writeStartedMs = System.currentTimeMillis();
+            }
+
+            try {
+                body.write(payload);
+                body.flush();
+            } catch (IOException e) {
+                drop(subscriber);
+            } finally {
+                subscriber.writeStartedMs = 0;
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        synchronized (subscriber) {
+            if (subscriber.dropped) {
+                return;
+            }
+            subscriber.dropped = true;
+            subscriber.outbox.clear();
+            subscriber.queuedBytes = 0;
+        }
+        subscribers.remove(subscriber);
+
+        // The NIO connection can be cut without writing the last chunk; the JDK server's close() may
+        // block on a full socket, so it runs off the fan-out thread.
+        if (subscriber.exchange instanceof NioHttpExchange nio) {
+            nio.abort();
+        } else {
+            try {
+                drainers.execute(subscriber.exchange::close);
+            } catch (RejectedExecutionException e) {
+                subscriber.exchange.close();
+            }
+        }
+    }
+
+    private static long parseEventId(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Subscriber {
+        private final HttpExchange exchange;
+        private final boolean inline;
+        private long lastSentId = -1;
+        private final Deque<byte[]> outbox = new ArrayDeque<>();
+        private long queuedBytes;
+        private boolean draining;
+        private boolean dropped;
+        private volatile long writeStartedMs;
+
+        Subscriber(HttpExchange exchange, boolean inline) {
+            this.exchange = exchange;
+            this.inline = inline;
+        }
+    }
+
+    /**
+     * A snapshot rendered at its capture time; each encoding is built on first use and then shared.
+     */
+    private static final class Event {
+        private final long id;
+        private final PlaybackStateSnapshot snapshot;
+        private volatile byte[] inlineBytes;
+        private volatile byte[] compactBytes;
+
+        Event(PlaybackStateSnapshot snapshot) {
+            this.id = snapshot.version();
+            this.snapshot = snapshot;
+        }
+
+        byte[] encoded(boolean inline) {
+            byte[] cached = inline ? inlineBytes : compactBytes;
+            if (cached != null) {
+                return cached;
+            }
+
+            StateFrame frame = snapshot.render(snapshot.capturedAtMs());
+            byte[] head = ("id: " + id + "\nevent: state\ndata: ").getBytes(StandardCharsets.UTF_8);
+            byte[] encoded = JsonBytes.concat(head, inline ? frame.json() : frame.compactJson(), new byte[] {'\n', '\n'});
+            if (inline) {
+                inlineBytes = encoded;
+            } else {
+                compactBytes = encoded;
+            }
+            return encoded;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package net.iozamudio.infrastructure.api;
+
+import com.google.gson.Gson;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One rendered state payload. The same bytes are written to HTTP responses and WebSocket frames.
+ */
+final class StateFrame {
+    private static final String STATE_ENVELOPE = "{\"type\":\"state\"}";
+
+    private final PlaybackStateSnapshot snapshot;
+    private final long renderedAtMs;
+    private final double positionSeconds;
+    private final double progress;
+    private final int activeLyricsIndex;
+    private final byte[] clockJson;
+    private final byte[] lyricsTail;
+    private volatile byte[] json;
+    private volatile byte[] compactJson;
+    private volatile byte[] webSocketEnvelope;
+    private final Map<String, byte[]> compressed = new ConcurrentHashMap<>(4);
+    private final Map<StateProjection, byte[]> projected = new ConcurrentHashMap<>(4);
+
+    StateFrame(
+            PlaybackStateSnapshot snapshot,
+            long renderedAtMs,
+            double positionSeconds,
+            double progress,
+            int activeLyricsIndex,
+            byte[] clockJson,
+            byte[] lyricsTail) {
+        this.snapshot = snapshot;
+        this.renderedAtMs = renderedAtMs;
+        this.positionSeconds = positionSeconds;
+        this.progress = progress;
+        this.activeLyricsIndex = activeLyricsIndex;
+        this.clockJson = clockJson;
+        this.lyricsTail = lyricsTail;
+    }
+
+    PlaybackStateSnapshot snapshot() {
+        return snapshot;
+    }
+
+    long renderedAtMs() {
+        return renderedAtMs;
+    }
+
+    double positionSeconds() {
+        return positionSeconds;
+    }
+
+    double progress() {
+        return progress;
+    }
+
+    int activeLyricsIndex() {
+        return activeLyricsIndex;
+    }
+
+    /**
+     * Full v1 state with inline artwork and lyrics lines.
+     */
+    byte[] json() {
+        byte[] encoded = json;
+        if (encoded == null) {
+            encoded = snapshot.encode(clockJson, lyricsTail, true);
+            json = encoded;
+        }
+        return encoded;
+    }
+
+    /**
+     * State that references artwork and lyrics by content hash only.
+     */
+    byte[] compactJson() {
+        byte[] encoded = compactJson;
+        if (encoded == null) {
+            encoded = snapshot.encode(clockJson, lyricsTail, false);
+            compactJson = encoded;
+        }
+        return encoded;
+    }
+
+    /**
+     * {@link #json()} or {@link #compactJson()} compressed with {@code encoding}, computed once per frame.
+     */
+    byte[] compressed(boolean inline, String encoding) {
+        return compressed.computeIfAbsent(
+                (inline ? "inline:" : "ref:") + encoding,
+                key -> HttpCompression.compress(inline ? json() : compactJson(), encoding));
+    }
+
+    /**
+     * This frame through {@code projection}, encoded once per frame.
+     */
+    byte[] projected(StateProjection projection, Gson gson) {
+        return projected.computeIfAbsent(projection, key -> key.encode(gson, this));
+    }
+
+    byte[] compressed(StateProjection projection, Gson gson, String encoding) {
+        return compressed.computeIfAbsent(
+                projection.etagSuffix() + ":" + encoding,
+                key -> HttpCompression.compress(projected(projection, gson), encoding));
+    }
+
+    byte[] webSocketEnvelope() {
+        byte[] envelope = webSocketEnvelope;
+        if (envelope == null) {
+            envelope = JsonBytes.withRawField(STATE_ENVELOPE, "state", json());
+            webSocketEnvelope = envelope;
+        }
+        return envelope;
+    }
+}
@@ -0,0 +1,53 @@
+package net.iozamudio.infrastructure.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bounded ring of the v2 patches in sequence order, so a reconnecting client can catch up from the
+ * last {@code seq} it applied instead of starting over (RFC-0001 §6.3). Not thread-safe: the server
+ * appends and reads it under the same lock that orders the patches.
+ */
+final class StateJournal {
+    private final int capacity;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    StateJournal(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    void append(long seq, byte[] patch) {
+        entries.addLast(new Entry(seq, patch));
+        while (entries.size() > capacity) {
+            entries.removeFirst();
+        }
+    }
+
+    /**
+     * The patches after {@code since} up to {@code latestSeq}, or {@code null} when they are no longer
+     * all in the ring (or {@code since} is not a sequence this stream produced).
+     */
+    List<byte[]> since(long since, long latestSeq) {
+        if (since == latestSeq) {
+            return List.of();
+        }
+
+        Entry oldest = entries.peekFirst();
+        if (oldest == null || since < oldest.seq - 1 || since > latestSeq) {
+            return null;
+        }
+
+        List<byte[]> missed = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.seq > since) {
+                missed.add(entry.patch);
+            }
+        }
+        return missed;
+    }
+
+    private record Entry(long seq, byte[] patch) {
+    }
+}
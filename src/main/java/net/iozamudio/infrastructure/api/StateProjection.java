@@ -0,0 +1,237 @@
+package net.iozamudio.infrastructure.api;
+
+import com.google.gson.Gson;
+import net.iozamudio.model.LyricsLine;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compiled {@code ?fields=} / {@code ?lyricsWindow=} view of {@code /state} (RFC-0001 §8.3).
+ * Each distinct query is parsed once into the ordered list of fields to write; values that only depend
+ * on the snapshot are encoded once per snapshot, so a projection never costs more than the full payload.
+ */
+final class StateProjection {
+    private static final int MAX_CACHED = 64;
+    private static final Map<String, StateProjection> COMPILED = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StateProjection> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    private final String key;
+    private final Set<Field> fields;
+    private final int lyricsWindow;
+
+    private StateProjection(String key, Set<Field> fields, int lyricsWindow) {
+        this.key = key;
+        this.fields = fields;
+        this.lyricsWindow = lyricsWindow;
+    }
+
+    /**
+     * The projection for a request, or {@code null} when it asks for the full payload.
+     *
+     * @throws IllegalArgumentException when {@code fields} names an unknown field
+     */
+    static StateProjection of(String rawFields, boolean inline, int lyricsWindow) {
+        if ((rawFields == null || rawFields.isBlank()) && lyricsWindow <= 0) {
+            return null;
+        }
+
+        String key = (rawFields == null ? "" : rawFields.trim().toLowerCase(Locale.ROOT)) + "|" + inline + "|" + lyricsWindow;
+        StateProjection cached = COMPILED.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Set<Field> fields = rawFields == null || rawFields.isBlank() ? EnumSet.allOf(Field.class) : parseFields(rawFields);
+        if (!inline) {
+            fields.remove(Field.TRACK_THUMBNAIL);
+            fields.remove(Field.TRACK_THUMBNAIL_HD);
+            fields.remove(Field.LYRICS_LINES);
+        }
+        if (lyricsWindow <= 0 || !fields.contains(Field.LYRICS_LINES)) {
+            fields.remove(Field.LYRICS_LINE_OFFSET);
+        } else {
+            fields.add(Field.LYRICS_LINE_OFFSET);
+        }
+
+        StateProjection compiled = new StateProjection(key, fields, Math.max(0, lyricsWindow));
+        COMPILED.put(key, compiled);
+        return compiled;
+    }
+
+    /**
+     * Distinguishes this view in ETags, so a cached projection is never revalidated against another one.
+     */
+    String etagSuffix() {
+        return "-p" + Integer.toHexString(key.hashCode());
+    }
+
+    byte[] encode(Gson gson, StateFrame frame) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write('{');
+        String openSection = null;
+        boolean firstTop = true;
+        boolean firstInSection = true;
+        for (Field field : fields) {
+            // Top-level fields always start a new member; section fields only when the section changes.
+            if (field.section == null || !field.section.equals(openSection)) {
+                if (openSection != null) {
+                    out.write('}');
+                }
+                if (!firstTop) {
+                    out.write(',');
+                }
+                firstTop = false;
+                if (field.section != null) {
+                    out.writeBytes(("\"" + field.section + "\":{").getBytes(StandardCharsets.UTF_8));
+                    firstInSection = true;
+                }
+                openSection = field.section;
+            }
+
+            if (field.section != null && !firstInSection) {
+                out.write(',');
+            }
+            firstInSection = false;
+            out.writeBytes(field.nameJson);
+            out.writeBytes(valueOf(field, gson, frame));
+        }
+        if (openSection != null) {
+            out.write('}');
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    private byte[] valueOf(Field field, Gson gson, StateFrame frame) {
+        PlaybackStateSnapshot snapshot = frame.snapshot();
+        return switch (field) {
+            case TIMESTAMP -> ascii("\"" + Instant.ofEpochMilli(frame.renderedAtMs()) + "\"");
+            case PLAYBACK_POSITION -> ascii(String.valueOf(frame.positionSeconds()));
+            case PLAYBACK_PROGRESS -> ascii(String.valueOf(frame.progress()));
+            case LYRICS_ACTIVE_INDEX -> ascii(String.valueOf(frame.activeLyricsIndex()));
+            case LYRICS_LINES -> lyricsWindow > 0
+                    ? gson.toJson(window(snapshot.lyrics(), frame.activeLyricsIndex())).getBytes(StandardCharsets.UTF_8)
+                    : snapshot.lyricsLinesJson();
+            case LYRICS_LINE_OFFSET -> ascii(String.valueOf(windowStart(snapshot.lyrics().size(), frame.activeLyricsIndex())));
+            default -> snapshot.encodedField(field, () -> encodeSnapshotField(field, gson, snapshot));
+        };
+    }
+
+    private static byte[] encodeSnapshotField(Field field, Gson gson, PlaybackStateSnapshot snapshot) {
+        String json = switch (field) {
+            case PLAYBACK_STATUS -> gson.toJson(snapshot.info().status());
+            case PLAYBACK_DURATION -> String.valueOf(snapshot.durationSeconds());
+            case PLAYBACK_CLOCK -> snapshot.clockJson();
+            case TRACK_ARTIST -> gson.toJson(snapshot.info().artist());
+            case TRACK_TITLE -> gson.toJson(snapshot.info().title());
+            case TRACK_THUMBNAIL -> gson.toJson(snapshot.info().thumbnail());
+            case TRACK_THUMBNAIL_HD -> gson.toJson(snapshot.thumbnailHd());
+            case TRACK_SOURCE -> gson.toJson(snapshot.source());
+            case TRACK_ARTWORK_HASH -> gson.toJson(snapshot.artworkHash());
+            case LYRICS_KEY -> gson.toJson(snapshot.lyricsKey());
+            case LYRICS_LINE_COUNT -> String.valueOf(snapshot.lyrics().size());
+            case LYRICS_STATUS -> gson.toJson(snapshot.lyricsStatus());
+            case CAPABILITIES -> new String(PlaybackStateSnapshot.capabilitiesJson(), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Field depends on the frame: " + field);
+        };
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<LyricsLine> window(List<LyricsLine> lines, int activeIndex) {
+        int start = windowStart(lines.size(), activeIndex);
+        return lines.subList(start, Math.min(lines.size(), start + lyricsWindow));
+    }
+
+    /**
+     * First line of the window: the active line sits in the middle unless the window hits either end.
+     */
+    private int windowStart(int lineCount, int activeIndex) {
+        int centered = Math.max(0, activeIndex) - lyricsWindow / 2;
+        return Math.max(0, Math.min(centered, lineCount - lyricsWindow));
+    }
+
+    private static Set<Field> parseFields(String rawFields) {
+        Set<Field> selected = EnumSet.noneOf(Field.class);
+        for (String part : rawFields.split(",")) {
+            String path = part.trim().toLowerCase(Locale.ROOT);
+            if (path.isEmpty()) {
+                continue;
+            }
+
+            boolean matched = false;
+            for (Field field : Field.values()) {
+                if (field.matches(path)) {
+                    selected.add(field);
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                throw new IllegalArgumentException("Unknown field: " + part.trim());
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("Query parameter 'fields' must name at least one field");
+        }
+        return selected;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Every field of the state, in the order of the full payload. Sections are contiguous.
+     */
+    enum Field {
+        TIMESTAMP(null, "timestamp"),
+        PLAYBACK_STATUS("playback", "status"),
+        PLAYBACK_POSITION("playback", "positionSeconds"),
+        PLAYBACK_DURATION("playback", "durationSeconds"),
+        PLAYBACK_PROGRESS("playback", "progress"),
+        PLAYBACK_CLOCK("playback", "clock"),
+        TRACK_ARTIST("track", "artist"),
+        TRACK_TITLE("track", "title"),
+        TRACK_THUMBNAIL("track", "thumbnailBase64"),
+        TRACK_THUMBNAIL_HD("track", "thumbnailHdBase64"),
+        TRACK_SOURCE("track", "source"),
+        TRACK_ARTWORK_HASH("track", "artworkHash"),
+        LYRICS_LINES("lyrics", "lines"),
+        LYRICS_LINE_OFFSET("lyrics", "lineOffset"),
+        LYRICS_KEY("lyrics", "key"),
+        LYRICS_LINE_COUNT("lyrics", "lineCount"),
+        LYRICS_STATUS("lyrics", "status"),
+        LYRICS_ACTIVE_INDEX("lyrics", "activeIndex"),
+        CAPABILITIES(null, "capabilities");
+
+        private final String section;
+        private final String path;
+        private final byte[] nameJson;
+
+        Field(String section, String name) {
+            this.section = section;
+            this.path = (section == null ? name : section + "." + name).toLowerCase(Locale.ROOT);
+            this.nameJson = ("\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * {@code "track"} selects the whole section, {@code "track.title"} a single field.
+         */
+        private boolean matches(String requested) {
+            return path.equals(requested) || (section != null && section.equals(requested));
+        }
+    }
+}
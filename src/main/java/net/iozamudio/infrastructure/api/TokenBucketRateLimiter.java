@@ -0,0 +1,78 @@
+package net.iozamudio.infrastructure.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token bucket without locks. Each client's bucket is a single "theoretical arrival
+ * time" updated with compare-and-set (GCRA), which behaves like a bucket of {@code burst} tokens
+ * refilled at {@code ratePerSecond}.
+ */
+final class TokenBucketRateLimiter {
+    private static final int EVICTION_THRESHOLD = 1024;
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final long intervalNanos;
+    private final long burstWindowNanos;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    TokenBucketRateLimiter(double ratePerSecond, int burst) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.intervalNanos = (long) (1_000_000_000L / Math.max(0.001, ratePerSecond));
+        this.burstWindowNanos = intervalNanos * this.burst;
+    }
+
+    Decision tryAcquire(String clientKey) {
+        long now = System.nanoTime();
+        if (buckets.size() > EVICTION_THRESHOLD) {
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+        }
+
+        AtomicLong bucket = buckets.computeIfAbsent(clientKey, key -> new AtomicLong(now));
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + intervalNanos;
+            long backlog = next - now;
+            if (backlog > burstWindowNanos) {
+                rejected.increment();
+                return new Decision(false, 0, backlog - burstWindowNanos, Math.max(0, arrival - now));
+            }
+
+            if (bucket.compareAndSet(arrival, next)) {
+                allowed.increment();
+                int remaining = (int) ((burstWindowNanos - backlog) / intervalNanos);
+                return new Decision(true, remaining, 0, backlog);
+            }
+        }
+    }
+
+    int burst() {
+        return burst;
+    }
+
+    Stats stats() {
+        return new Stats(ratePerSecond, burst, allowed.sum(), rejected.sum(), buckets.size());
+    }
+
+    /**
+     * {@code retryAfterNanos} is the wait until the next token; {@code resetNanos} the wait until the bucket is full.
+     */
+    record Decision(boolean allowed, int remaining, long retryAfterNanos, long resetNanos) {
+        long retryAfterSeconds() {
+            return Math.max(1, (retryAfterNanos + 999_999_999L) / 1_000_000_000L);
+        }
+
+        long resetSeconds() {
+            return (resetNanos + 999_999_999L) / 1_000_000_000L;
+        }
+    }
+
+    record Stats(double ratePerSecond, int burst, long allowed, long rejected, int trackedClients) {
+    }
+}
@@ -0,0 +1,527 @@
+package net.iozamudio.infrastructure.lyrics;
+
+import net.iozamudio.application.port.out.LyricsProviderPort;
+import net.iozamudio.model.LyricsLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Serves lyrics from {@code .lrc} files found in local music folders, falling back to another provider.
+ * The header index is persisted in a compact binary file that is memory-mapped on startup, so lookups
+ * work before the background rescan finishes.
+ */
+public class LocalLrcLibraryLyricsProviderAdapter implements LyricsProviderPort, AutoCloseable {
+    private static final int INDEX_MAGIC = 0x564C5243;
+    private static final int INDEX_VERSION = 1;
+    private static final int MAX_HEADER_LINES = 40;
+    private static final long PERSIST_DEBOUNCE_MS = 2000;
+
+    private final List<Path> roots;
+    private final Path indexFile;
+    private final LyricsProviderPort fallback;
+    private final Map<String, IndexEntry> entriesByKey = new ConcurrentHashMap<>();
+    private final Map<Path, IndexEntry> entriesByPath = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LrcLibraryIndexer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private volatile WatchService watchService;
+    private volatile ScheduledFuture<?> pendingPersist;
+
+    public LocalLrcLibraryLyricsProviderAdapter(List<Path> roots, Path indexFile, LyricsProviderPort fallback) {
+        this.roots = roots.stream().map(Path::toAbsolutePath).map(Path::normalize).toList();
+        this.indexFile = indexFile;
+        this.fallback = fallback;
+    }
+
+    public static LocalLrcLibraryLyricsProviderAdapter createDefault(List<Path> roots, LyricsProviderPort fallback) {
+        Path indexPath = Path.of(System.getProperty("user.home"), ".vinilplayer", "cache", "lrc-index.bin");
+        return new LocalLrcLibraryLyricsProviderAdapter(roots, indexPath, fallback);
+    }
+
+    public static List<Path> resolveConfiguredDirectories() {
+        String raw = System.getProperty("vinil.lyrics.dirs", "").trim();
+        if (raw.isEmpty()) {
+            return List.of();
+        }
+
+        List<Path> directories = new ArrayList<>();
+        for (String part : raw.split(File.pathSeparator)) {
+            if (part.isBlank()) {
+                continue;
+            }
+            Path path = Path.of(part.trim());
+            if (Files.isDirectory(path)) {
+                directories.add(path);
+            } else {
+                System.err.println("LRC library directory not found: " + path);
+            }
+        }
+        return directories;
+    }
+
+    public void start() {
+        long startedAt = System.nanoTime();
+        int loaded = loadIndex();
+        if (loaded > 0) {
+            System.out.println("LRC library index loaded: " + loaded + " entries in "
+                    + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+        }
+
+        maintenanceExecutor.submit(() -> {
+            rescan();
+            startWatching();
+        });
+    }
+
+    @Override
+    public List<LyricsLine> fetchSyncedLyrics(String artist, String title) {
+        List<LyricsLine> local = findLocal(artist, title);
+        if (!local.isEmpty() || fallback == null) {
+            return local;
+        }
+        return fallback.fetchSyncedLyrics(artist, title);
+    }
+
+    @Override
+    public List<LyricsLine> fetchSyncedLyricsOnce(String artist, String title) {
+        List<LyricsLine> local = findLocal(artist, title);
+        if (!local.isEmpty() || fallback == null) {
+            return local;
+        }
+        return fallback.fetchSyncedLyricsOnce(artist, title);
+    }
+
+    private List<LyricsLine> findLocal(String artist, String title) {
+        IndexEntry entry = entriesByKey.get(key(artist, title));
+        if (entry != null) {
+            try {
+                List<LyricsLine> lyrics = LrcParser.parseSyncedLyrics(readText(entry.path()));
+                if (!lyrics.isEmpty()) {
+                    System.out.println("Lyrics local HIT: " + artist + " - " + title + " (" + entry.path().getFileName() + ")");
+                    return lyrics;
+                }
+            } catch (Exception e) {
+                System.err.println("Local LRC read failed: " + entry.path() + ": " + e.getMessage());
+            }
+        }
+        return List.of();
+    }
+
+    @Override
+    public boolean hasCachedLyrics(String artist, String title) {
+        return entriesByKey.containsKey(key(artist, title))
+                || (fallback != null && fallback.hasCachedLyrics(artist, title));
+    }
+
+    @Override
+    public void close() {
+        maintenanceExecutor.shutdownNow();
+        WatchService watcher = watchService;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void rescan() {
+        long startedAt = System.nanoTime();
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(this::isLrcFile).forEach(files::add);
+            } catch (Exception e) {
+                System.err.println("LRC library scan failed for " + root + ": " + e.getMessage());
+            }
+        }
+
+        Set<Path> seen = new HashSet<>(files);
+        int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long parsed;
+        try {
+            parsed = pool.submit(() -> files.parallelStream().filter(this::indexFileIfChanged).count()).get();
+        } catch (Exception e) {
+            System.err.println("LRC library indexing failed: " + e.getMessage());
+            parsed = 0;
+        } finally {
+            pool.shutdown();
+        }
+
+        int removed = 0;
+        for (Path indexedPath : List.copyOf(entriesByPath.keySet())) {
+            if (!seen.contains(indexedPath)) {
+                removeFile(indexedPath);
+                removed++;
+            }
+        }
+
+        if (parsed > 0 || removed > 0) {
+            persistIndex();
+        }
+
+        System.out.println("LRC library indexed: " + files.size() + " files (" + parsed + " parsed, " + removed
+                + " removed) in " + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+    }
+
+    private boolean indexFileIfChanged(Path file) {
+        try {
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            IndexEntry existing = entriesByPath.get(file);
+            if (existing != null && existing.lastModified() == lastModified) {
+                return false;
+            }
+
+            IndexEntry entry = parseHeaders(file, lastModified);
+            if (entry == null) {
+                removeFile(file);
+                return false;
+            }
+
+            putEntry(entry);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private IndexEntry parseHeaders(Path file, long lastModified) throws IOException {
+        String artist = "";
+        String title = "";
+        int lengthSeconds = 0;
+
+        int read = 0;
+        for (String line : readText(file).split("\\R", MAX_HEADER_LINES + 1)) {
+            if (read++ >= MAX_HEADER_LINES) {
+                break;
+            }
+
+            String trimmed = line.trim();
+            if (!trimmed.startsWith("[") || !trimmed.endsWith("]")) {
+                continue;
+            }
+
+            String tag = trimmed.substring(1, trimmed.length() - 1);
+            int colon = tag.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+
+            String name = tag.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = tag.substring(colon + 1).trim();
+            switch (name) {
+                case "ar" -> artist = value;
+                case "ti" -> title = value;
+                case "length" -> lengthSeconds = (int) Math.round(Math.max(0, LrcParser.parseTimestampSeconds(value)));
+                default -> {
+                }
+            }
+        }
+
+        if (artist.isEmpty() || title.isEmpty()) {
+            String baseName = file.getFileName().toString();
+            baseName = baseName.substring(0, baseName.length() - ".lrc".length());
+            int separator = baseName.indexOf(" - ");
+            if (separator <= 0) {
+                return null;
+            }
+            if (artist.isEmpty()) {
+                artist = baseName.substring(0, separator).trim();
+            }
+            if (title.isEmpty()) {
+                title = baseName.substring(separator + 3).trim();
+            }
+        }
+
+        if (artist.isEmpty() || title.isEmpty()) {
+            return null;
+        }
+
+        return new IndexEntry(file, normalize(artist), normalize(title), lengthSeconds, lastModified);
+    }
+
+    private void putEntry(IndexEntry entry) {
+        IndexEntry previous = entriesByPath.put(entry.path(), entry);
+        if (previous != null) {
+            unlinkKey(previous);
+        }
+        entriesByKey.put(entry.key(), entry);
+    }
+
+    private void removeFile(Path file) {
+        IndexEntry previous = entriesByPath.remove(file);
+        if (previous != null) {
+            unlinkKey(previous);
+        }
+    }
+
+    /**
+     * Drops {@code previous} as the file for its artist/title; another indexed file with the same key takes over.
+     */
+    private void unlinkKey(IndexEntry previous) {
+        if (!entriesByKey.remove(previous.key(), previous)) {
+            return;
+        }
+        for (IndexEntry other : entriesByPath.values()) {
+            if (other.key().equals(previous.key())) {
+                entriesByKey.putIfAbsent(other.key(), other);
+                return;
+            }
+        }
+    }
+
+    private void removeDirectory(Path directory) {
+        for (Path indexedPath : List.copyOf(entriesByPath.keySet())) {
+            if (indexedPath.startsWith(directory)) {
+                removeFile(indexedPath);
+            }
+        }
+    }
+
+    private void startWatching() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path root : roots) {
+                registerRecursively(root);
+            }
+        } catch (Exception e) {
+            System.err.println("LRC library watcher unavailable: " + e.getMessage());
+            return;
+        }
+
+        Thread watcherThread = new Thread(this::watchLoop, "LrcLibraryWatcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private void registerRecursively(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+                path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        WatchService watcher = watchService;
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            List<Runnable> changes = new ArrayList<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    changes.add(this::rescan);
+                    continue;
+                }
+
+                Path changed = directory.resolve((Path) event.context());
+                if (event.kind() == ENTRY_DELETE) {
+                    changes.add(() -> {
+                        removeFile(changed);
+                        removeDirectory(changed);
+                    });
+                } else if (Files.isDirectory(changed)) {
+                    changes.add(() -> {
+                        try {
+                            registerRecursively(changed);
+                            try (Stream<Path> walk = Files.walk(changed)) {
+                                walk.filter(this::isLrcFile).forEach(this::indexFileIfChanged);
+                            }
+                        } catch (IOException e) {
+                            System.err.println("LRC library watch failed for " + changed + ": " + e.getMessage());
+                        }
+                    });
+                } else if (isLrcFile(changed)) {
+                    changes.add(() -> indexFileIfChanged(changed));
+                }
+            }
+
+            if (!changes.isEmpty()) {
+                maintenanceExecutor.submit(() -> {
+                    changes.forEach(Runnable::run);
+                    schedulePersist();
+                });
+            }
+
+            if (!key.reset() && roots.contains(directory)) {
+                System.err.println("LRC library root no longer watchable: " + directory);
+            }
+        }
+    }
+
+    private void schedulePersist() {
+        ScheduledFuture<?> previous = pendingPersist;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        pendingPersist = maintenanceExecutor.schedule(this::persistIndex, PERSIST_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private int loadIndex() {
+        if (!Files.isRegularFile(indexFile)) {
+            return 0;
+        }
+
+        // Read into the heap rather than mapping it: Windows refuses to replace a file that is still
+        // mapped, which would make every later persistIndex() fail until the mapping is collected.
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            if (buffer.remaining() < 12 || buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION) {
+                return 0;
+            }
+
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                Path path = Path.of(readString(buffer));
+                String artistNorm = readString(buffer);
+                String titleNorm = readString(buffer);
+                int lengthSeconds = buffer.getInt();
+                long lastModified = buffer.getLong();
+                if (isUnderRoots(path)) {
+                    putEntry(new IndexEntry(path, artistNorm, titleNorm, lengthSeconds, lastModified));
+                }
+            }
+            return entriesByPath.size();
+        } catch (Exception e) {
+            System.err.println("LRC library index unreadable, rebuilding: " + e.getMessage());
+            entriesByKey.clear();
+            entriesByPath.clear();
+            return 0;
+        }
+    }
+
+    private void persistIndex() {
+        try {
+            List<IndexEntry> snapshot = List.copyOf(entriesByPath.values());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, snapshot.size() * 96));
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeInt(snapshot.size());
+                for (IndexEntry entry : snapshot) {
+                    writeString(out, entry.path().toString());
+                    writeString(out, entry.artistNorm());
+                    writeString(out, entry.titleNorm());
+                    out.writeInt(entry.lengthSeconds());
+                    out.writeLong(entry.lastModified());
+                }
+            }
+
+            Path parent = indexFile.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            System.err.println("LRC library index write failed: " + e.getMessage());
+        }
+    }
+
+    private static String readText(Path file) throws IOException {
+        byte[] raw = Files.readAllBytes(file);
+        int offset = raw.length >= 3 && raw[0] == (byte) 0xEF && raw[1] == (byte) 0xBB && raw[2] == (byte) 0xBF ? 3 : 0;
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(raw, offset, raw.length - offset))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return new String(raw, offset, raw.length - offset, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] raw = new byte[length];
+        buffer.get(raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(raw.length, 0xFFFF);
+        out.writeShort(length);
+        out.write(raw, 0, length);
+    }
+
+    private boolean isUnderRoots(Path path) {
+        for (Path root : roots) {
+            if (path.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isLrcFile(Path path) {
+        return path.getFileName() != null
+                && path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".lrc")
+                && Files.isRegularFile(path);
+    }
+
+    private String key(String artist, String title) {
+        return normalize(artist) + "::" + normalize(title);
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record IndexEntry(Path path, String artistNorm, String titleNorm, int lengthSeconds, long lastModified) {
+        String key() {
+            return artistNorm + "::" + titleNorm;
+        }
+    }
+}
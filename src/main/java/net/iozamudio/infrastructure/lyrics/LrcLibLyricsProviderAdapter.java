@@ -1,8 +1,10 @@
 package net.iozamudio.infrastructure.lyrics;
 
 import com.google.gson.Gson;
+import net.iozamudio.application.port.out.LyricsCachePort;
 import net.iozamudio.application.port.out.LyricsProviderPort;
 import net.iozamudio.model.LyricsLine;
+import net.iozamudio.util.Metrics;
 
 import java.net.URI;
 import java.net.URLEncoder;
@@ -11,23 +13,24 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
 
 public class LrcLibLyricsProviderAdapter implements LyricsProviderPort {
     private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(6);
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(8);
     private static final int MAX_ATTEMPTS = 2;
+    private static final Metrics.Histogram REQUEST_DURATION = Metrics.histogram("lyrics_provider_request_duration_ms",
+            "Lyrics provider HTTP requests", Metrics.LATENCY_MS_BUCKETS, "provider", "lrclib");
 
     private final HttpClient httpClient;
     private final Gson gson;
-    private final SqliteLyricsCache cache;
+    private final LyricsCachePort cache;
 
     public LrcLibLyricsProviderAdapter() {
-        this(SqliteLyricsCache.createDefault());
+        this(LyricsCaches.createDefault());
     }
 
-    public LrcLibLyricsProviderAdapter(SqliteLyricsCache cache) {
+    public LrcLibLyricsProviderAdapter(LyricsCachePort cache) {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(CONNECT_TIMEOUT)
                 .build();
@@ -37,6 +40,15 @@ public class LrcLibLyricsProviderAdapter implements LyricsProviderPort {
 
     @Override
     public List<LyricsLine> fetchSyncedLyrics(String artist, String title) {
+        return fetch(artist, title, MAX_ATTEMPTS);
+    }
+
+    @Override
+    public List<LyricsLine> fetchSyncedLyricsOnce(String artist, String title) {
+        return fetch(artist, title, 1);
+    }
+
+    private List<LyricsLine> fetch(String artist, String title, int maxAttempts) {
         List<LyricsLine> cached = cache.getCachedLyrics(artist, title);
         if (!cached.isEmpty()) {
             return cached;
@@ -47,14 +59,14 @@ public class LrcLibLyricsProviderAdapter implements LyricsProviderPort {
         String encodedTitle = URLEncoder.encode(title, StandardCharsets.UTF_8);
         URI uri = URI.create("https://lrclib.net/api/get?artist_name=" + encodedArtist + "&track_name=" + encodedTitle);
 
-        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
             List<LyricsLine> result = fetchOnce(uri);
             if (!result.isEmpty()) {
                 cache.saveLyrics(artist, title, result);
                 return result;
             }
 
-            if (attempt < MAX_ATTEMPTS) {
+            if (attempt < maxAttempts) {
                 try {
                     Thread.sleep(250);
                 } catch (InterruptedException e) {
@@ -67,7 +79,14 @@ public class LrcLibLyricsProviderAdapter implements LyricsProviderPort {
         return List.of();
     }
 
+    @Override
+    public boolean hasCachedLyrics(String artist, String title) {
+        return cache.hasCachedLyrics(artist, title);
+    }
+
     private List<LyricsLine> fetchOnce(URI uri) {
+        long startedAt = System.nanoTime();
+        String result = "error";
         try {
             HttpRequest request = HttpRequest.newBuilder(uri)
                     .timeout(REQUEST_TIMEOUT)
@@ -77,59 +96,25 @@ public class LrcLibLyricsProviderAdapter implements LyricsProviderPort {
 
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
             if (response.statusCode() != 200) {
+                result = response.statusCode() == 404 ? "not_found" : "http_" + response.statusCode();
                 return List.of();
             }
 
             LrcLibResponse payload = gson.fromJson(response.body(), LrcLibResponse.class);
             if (payload == null || payload.syncedLyrics == null || payload.syncedLyrics.isBlank()) {
+                result = "unsynced";
                 return List.of();
             }
 
-            return parseSyncedLyrics(payload.syncedLyrics);
+            result = "ok";
+            return LrcParser.parseSyncedLyrics(payload.syncedLyrics);
         } catch (Exception e) {
             System.err.println("Lyrics fetch failed: " + e.getMessage());
             return List.of();
-        }
-    }
-
-    private List<LyricsLine> parseSyncedLyrics(String lrcText) {
-        List<LyricsLine> lines = new ArrayList<>();
-        String[] rawLines = lrcText.split("\\R");
-
-        for (String raw : rawLines) {
-            int start = raw.indexOf('[');
-            int end = raw.indexOf(']');
-            if (start != 0 || end <= start) {
-                continue;
-            }
-
-            String timestamp = raw.substring(start + 1, end).trim();
-            String text = raw.substring(end + 1).trim();
-            if (text.isEmpty()) {
-                continue;
-            }
-
-            double seconds = parseTimestampSeconds(timestamp);
-            if (seconds >= 0) {
-                lines.add(new LyricsLine(seconds, text));
-            }
-        }
-
-        return lines;
-    }
-
-    private double parseTimestampSeconds(String timestamp) {
-        try {
-            String[] minSec = timestamp.split(":");
-            if (minSec.length != 2) {
-                return -1;
-            }
-
-            int minutes = Integer.parseInt(minSec[0]);
-            double sec = Double.parseDouble(minSec[1]);
-            return minutes * 60 + sec;
-        } catch (Exception ignored) {
-            return -1;
+        } finally {
+            REQUEST_DURATION.observeSince(startedAt);
+            Metrics.counter("lyrics_provider_requests_total", "Lyrics provider HTTP requests by result",
+                    "provider", "lrclib", "result", result).inc();
         }
     }
 
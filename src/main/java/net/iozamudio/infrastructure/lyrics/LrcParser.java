@@ -0,0 +1,70 @@
+package net.iozamudio.infrastructure.lyrics;
+
+import net.iozamudio.model.LyricsLine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+final class LrcParser {
+    private LrcParser() {
+    }
+
+    static List<LyricsLine> parseSyncedLyrics(String lrcText) {
+        List<LyricsLine> lines = new ArrayList<>();
+        String[] rawLines = lrcText.split("\\R");
+        boolean ordered = true;
+
+        for (String raw : rawLines) {
+            String remaining = raw.trim();
+            List<Double> timestamps = new ArrayList<>(1);
+
+            while (remaining.startsWith("[")) {
+                int end = remaining.indexOf(']');
+                if (end <= 0) {
+                    break;
+                }
+
+                double seconds = parseTimestampSeconds(remaining.substring(1, end).trim());
+                if (seconds < 0) {
+                    break;
+                }
+
+                timestamps.add(seconds);
+                remaining = remaining.substring(end + 1).trim();
+            }
+
+            if (timestamps.isEmpty() || remaining.isEmpty()) {
+                continue;
+            }
+
+            for (double seconds : timestamps) {
+                if (!lines.isEmpty() && seconds < lines.get(lines.size() - 1).timeSeconds()) {
+                    ordered = false;
+                }
+                lines.add(new LyricsLine(seconds, remaining));
+            }
+        }
+
+        if (!ordered) {
+            lines.sort(Comparator.comparingDouble(LyricsLine::timeSeconds));
+        }
+
+        return lines;
+    }
+
+    static double parseTimestampSeconds(String timestamp) {
+        try {
+            String[] minSec = timestamp.split(":");
+            if (minSec.length != 2) {
+                return -1;
+            }
+
+            int minutes = Integer.parseInt(minSec[0].trim());
+            double sec = Double.parseDouble(minSec[1].trim());
+            return minutes * 60 + sec;
+        } catch (Exception ignored) {
+            return -1;
+        }
+    }
+}
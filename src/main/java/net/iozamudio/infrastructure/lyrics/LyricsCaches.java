@@ -0,0 +1,50 @@
+package net.iozamudio.infrastructure.lyrics;
+
+import net.iozamudio.application.port.out.LyricsCachePort;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public final class LyricsCaches {
+    private static final int DEFAULT_WARM_UP_SIZE = 50;
+
+    private LyricsCaches() {
+    }
+
+    /**
+     * Picks the cache backend from {@code -Dvinil.lyrics.cache} ({@code sqlite} by default, or {@code segment}).
+     */
+    public static LyricsCachePort createDefault() {
+        String backend = System.getProperty("vinil.lyrics.cache", "sqlite").trim().toLowerCase(Locale.ROOT);
+        Path cacheDir = Path.of(System.getProperty("user.home"), ".vinilplayer", "cache");
+        if ("segment".equals(backend)) {
+            return new SegmentFileLyricsCache(cacheDir.resolve("lyrics-segments"));
+        }
+        return new SqliteLyricsCache(cacheDir.resolve("lyrics-cache.db"));
+    }
+
+    /**
+     * Runs {@link LyricsCachePort#warmUp(int)} on a low-priority daemon thread and logs the outcome.
+     */
+    public static void warmUpInBackground(LyricsCachePort cache) {
+        int limit = resolveWarmUpSize();
+        Thread warmUpThread = new Thread(() -> {
+            LyricsCachePort.WarmUpResult result = cache.warmUp(limit);
+            System.out.println("Lyrics cache warm-up: " + result.loadedEntries() + "/" + result.candidateEntries()
+                    + " entries warmed in " + result.elapsedMs() + " ms"
+                    + (result.lastPlayed().isEmpty() ? "" : " (last played: " + result.lastPlayed() + ")"));
+        }, "LyricsCacheWarmUp");
+        warmUpThread.setDaemon(true);
+        warmUpThread.setPriority(Thread.MIN_PRIORITY);
+        warmUpThread.start();
+    }
+
+    private static int resolveWarmUpSize() {
+        String raw = System.getProperty("vinil.lyrics.warmup.size", String.valueOf(DEFAULT_WARM_UP_SIZE)).trim();
+        try {
+            return Math.max(0, Integer.parseInt(raw));
+        } catch (NumberFormatException ignored) {
+            return DEFAULT_WARM_UP_SIZE;
+        }
+    }
+}
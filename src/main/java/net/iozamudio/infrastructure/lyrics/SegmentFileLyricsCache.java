@@ -0,0 +1,575 @@
+package net.iozamudio.infrastructure.lyrics;
+
+import net.iozamudio.application.port.out.LyricsCachePort;
+import net.iozamudio.model.LyricsLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Lyrics cache stored in append-only, memory-mapped segment files with an in-memory hash index.
+ * Every write appends a record (put, touch or delete); a background compaction rewrites the live
+ * entries into a new generation once most of the bytes on disk are dead.
+ */
+public class SegmentFileLyricsCache implements LyricsCachePort {
+    private static final int DEFAULT_MAX_ENTRIES = 400;
+    private static final int SEGMENT_CAPACITY = 4 * 1024 * 1024;
+    private static final int SEGMENT_MAGIC = 0x564C5347;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_TOUCH = 2;
+    private static final byte RECORD_DELETE = 3;
+    private static final long COMPACTION_MIN_BYTES = 1024 * 1024;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)-(\\d+)\\.dat");
+
+    private final Path directory;
+    private final int maxEntries;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LyricsSegmentCompactor");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final List<Segment> segments = new ArrayList<>();
+    private long generation = 1;
+    private Segment activeSegment;
+    private long totalBytes;
+    private long liveBytes;
+
+    public SegmentFileLyricsCache(Path directory) {
+        this(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    public SegmentFileLyricsCache(Path directory, int maxEntries) {
+        this.directory = directory.toAbsolutePath();
+        this.maxEntries = Math.max(1, maxEntries);
+
+        long startedAt = System.nanoTime();
+        try {
+            Files.createDirectories(this.directory);
+            synchronized (writeLock) {
+                loadSegments();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open lyrics segment cache", e);
+        }
+
+        System.out.println("Lyrics cache segments: " + this.directory + " (" + index.size() + " entries, "
+                + segments.size() + " segments, " + (System.nanoTime() - startedAt) / 1_000_000 + " ms)");
+    }
+
+    @Override
+    public List<LyricsLine> getCachedLyrics(String artist, String title) {
+        String key = key(artist, title);
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return List.of();
+        }
+
+        List<LyricsLine> lyrics = decodeLines(entry);
+        if (!lyrics.isEmpty()) {
+            System.out.println("Lyrics cache HIT: " + artist + " - " + title);
+        }
+
+        try {
+            synchronized (writeLock) {
+                Entry current = index.get(key);
+                if (current != null) {
+                    long now = System.currentTimeMillis();
+                    int playCount = current.playCount() + 1;
+                    appendRecord(encodeTouch(key, now, playCount));
+                    index.put(key, current.withStats(now, playCount));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Lyrics cache touch failed: " + e.getMessage());
+        }
+
+        return lyrics;
+    }
+
+    @Override
+    public boolean hasCachedLyrics(String artist, String title) {
+        return index.containsKey(key(artist, title));
+    }
+
+    @Override
+    public void saveLyrics(String artist, String title, List<LyricsLine> lyrics) {
+        if (lyrics == null || lyrics.isEmpty()) {
+            return;
+        }
+
+        String key = key(artist, title);
+        if (key.startsWith("::") || key.endsWith("::")) {
+            return;
+        }
+
+        try {
+            byte[] linesPayload = encodeLines(lyrics);
+            synchronized (writeLock) {
+                Entry previous = index.get(key);
+                int playCount = previous == null ? 1 : previous.playCount() + 1;
+                Entry entry = appendPut(key, System.currentTimeMillis(), playCount, artist, title, linesPayload);
+                index.put(key, entry);
+                if (previous != null) {
+                    liveBytes -= previous.recordLength();
+                }
+                pruneOldEntries();
+            }
+            System.out.println("Lyrics cache SAVE: " + artist + " - " + title + " (" + lyrics.size() + " lines)");
+            scheduleCompactionIfNeeded();
+        } catch (Exception e) {
+            System.err.println("Lyrics cache write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Faults in the mapped pages of the last played and the most played entries, so their first read
+     * does not wait on the disk. Nothing is decoded or kept on the heap (the page cache is this backend's
+     * memory tier), so {@code loadedEntries} counts entries whose pages were read.
+     */
+    @Override
+    public WarmUpResult warmUp(int limit) {
+        long startedAt = System.nanoTime();
+        if (limit <= 0) {
+            return new WarmUpResult(0, 0, "", 0);
+        }
+
+        Entry last = index.values().stream()
+                .max(Comparator.comparingLong(Entry::lastPlayed))
+                .orElse(null);
+        List<Entry> candidates = new ArrayList<>();
+        if (last != null) {
+            candidates.add(last);
+        }
+        index.values().stream()
+                .sorted(Comparator.comparingInt(Entry::playCount).reversed()
+                        .thenComparing(Comparator.comparingLong(Entry::lastPlayed).reversed()))
+                .limit(limit)
+                .filter(entry -> entry != last)
+                .forEach(candidates::add);
+
+        int loaded = 0;
+        for (Entry entry : candidates) {
+            if (prefault(entry)) {
+                loaded++;
+            }
+        }
+
+        String lastPlayed = last == null ? "" : last.artist() + " - " + last.title();
+        return new WarmUpResult(loaded, candidates.size(), lastPlayed, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @Override
+    public void close() {
+        compactionExecutor.shutdownNow();
+        synchronized (writeLock) {
+            for (Segment segment : segments) {
+                segment.buffer().force();
+            }
+        }
+    }
+
+    private void loadSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches()).toList();
+        }
+
+        long latestGeneration = files.stream()
+                .map(SegmentFileLyricsCache::segmentGeneration)
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .filter(this::isCommittedGeneration)
+                .findFirst()
+                .orElse(0L);
+
+        List<Path> current = new ArrayList<>();
+        for (Path file : files) {
+            if (segmentGeneration(file) == latestGeneration) {
+                current.add(file);
+            } else {
+                deleteQuietly(file);
+            }
+        }
+        current.sort(Comparator.comparingLong(SegmentFileLyricsCache::segmentId));
+
+        generation = Math.max(1, latestGeneration);
+        for (Path file : current) {
+            Segment segment = openSegment(file, (int) segmentId(file));
+            replay(segment);
+            segments.add(segment);
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(createSegment(generation, 1, true));
+        }
+        activeSegment = segments.get(segments.size() - 1);
+    }
+
+    private void replay(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer();
+        if (buffer.getInt(0) != SEGMENT_MAGIC) {
+            segment.writePosition = SEGMENT_CAPACITY;
+            return;
+        }
+
+        int position = SEGMENT_HEADER_BYTES;
+
+        while (position + 4 <= SEGMENT_CAPACITY) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 4 + length > SEGMENT_CAPACITY) {
+                break;
+            }
+
+            ByteBuffer record = buffer.slice(position + 4, length);
+            byte type = record.get();
+            String key = readString(record);
+            totalBytes += 4 + length;
+
+            switch (type) {
+                case RECORD_PUT -> {
+                    long lastPlayed = record.getLong();
+                    int playCount = record.getInt();
+                    String artist = readString(record);
+                    String title = readString(record);
+                    int payloadOffset = position + 4 + record.position();
+                    Entry entry = new Entry(segment, 4 + length, payloadOffset, length - record.position(),
+                            artist, title, lastPlayed, playCount);
+                    Entry previous = index.put(key, entry);
+                    if (previous != null) {
+                        liveBytes -= previous.recordLength();
+                    }
+                    liveBytes += entry.recordLength();
+                }
+                case RECORD_TOUCH -> {
+                    long lastPlayed = record.getLong();
+                    int playCount = record.getInt();
+                    index.computeIfPresent(key, (ignored, entry) -> entry.withStats(lastPlayed, playCount));
+                }
+                case RECORD_DELETE -> {
+                    Entry previous = index.remove(key);
+                    if (previous != null) {
+                        liveBytes -= previous.recordLength();
+                    }
+                }
+                default -> {
+                    return;
+                }
+            }
+
+            position += 4 + length;
+        }
+
+        segment.writePosition = position;
+    }
+
+    private Entry appendPut(String key, long lastPlayed, int playCount, String artist, String title, byte[] linesPayload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + linesPayload.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_PUT);
+        writeString(out, key);
+        out.writeLong(lastPlayed);
+        out.writeInt(playCount);
+        writeString(out, artist == null ? "" : artist.trim());
+        writeString(out, title == null ? "" : title.trim());
+        int headerLength = out.size();
+        out.write(linesPayload);
+
+        byte[] body = bytes.toByteArray();
+        Segment segment = appendRecord(body);
+        int recordStart = segment.writePosition - 4 - body.length;
+        liveBytes += 4 + body.length;
+        return new Entry(segment, 4 + body.length, recordStart + 4 + headerLength, linesPayload.length,
+                artist == null ? "" : artist.trim(), title == null ? "" : title.trim(), lastPlayed, playCount);
+    }
+
+    private Segment appendRecord(byte[] body) throws IOException {
+        if (body.length + 4 > SEGMENT_CAPACITY - SEGMENT_HEADER_BYTES) {
+            throw new IOException("Record too large for a segment (" + body.length + " bytes)");
+        }
+
+        if (activeSegment.writePosition + 4 + body.length > SEGMENT_CAPACITY) {
+            activeSegment = createSegment(generation, activeSegment.id() + 1, true);
+            segments.add(activeSegment);
+        }
+
+        Segment segment = activeSegment;
+        int position = segment.writePosition;
+        segment.buffer().put(position + 4, body);
+        segment.buffer().putInt(position, body.length);
+        segment.writePosition = position + 4 + body.length;
+        totalBytes += 4 + body.length;
+        return segment;
+    }
+
+    private void pruneOldEntries() throws IOException {
+        while (index.size() > maxEntries) {
+            Map.Entry<String, Entry> oldest = index.entrySet().stream()
+                    .min(Comparator.comparingLong(item -> item.getValue().lastPlayed()))
+                    .orElse(null);
+            if (oldest == null) {
+                return;
+            }
+
+            appendRecord(encodeDelete(oldest.getKey()));
+            index.remove(oldest.getKey());
+            liveBytes -= oldest.getValue().recordLength();
+        }
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        boolean needed;
+        synchronized (writeLock) {
+            needed = totalBytes > COMPACTION_MIN_BYTES && liveBytes * 2 < totalBytes;
+        }
+
+        if (needed && compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.submit(() -> {
+                try {
+                    compact();
+                } catch (Exception e) {
+                    System.err.println("Lyrics segment compaction failed: " + e.getMessage());
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private void compact() throws IOException {
+        long startedAt = System.nanoTime();
+        synchronized (writeLock) {
+            long previousTotal = totalBytes;
+            List<Segment> previousSegments = List.copyOf(segments);
+
+            generation++;
+            segments.clear();
+            Segment firstSegment = createSegment(generation, 1, false);
+            activeSegment = firstSegment;
+            segments.add(activeSegment);
+            totalBytes = 0;
+            liveBytes = 0;
+
+            for (Map.Entry<String, Entry> item : List.copyOf(index.entrySet())) {
+                Entry entry = item.getValue();
+                byte[] linesPayload = new byte[entry.payloadLength()];
+                entry.segment().buffer().get(entry.payloadOffset(), linesPayload);
+                index.put(item.getKey(), appendPut(item.getKey(), entry.lastPlayed(), entry.playCount(),
+                        entry.artist(), entry.title(), linesPayload));
+            }
+
+            for (Segment segment : segments) {
+                segment.buffer().force();
+            }
+            firstSegment.buffer().putInt(4, 1);
+            firstSegment.buffer().force();
+
+            // Old segments may still be mapped (Windows); leftovers are removed on the next startup.
+            for (Segment segment : previousSegments) {
+                deleteQuietly(segment.path());
+            }
+
+            System.out.println("Lyrics segment compaction: " + previousTotal + " -> " + totalBytes + " bytes in "
+                    + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+        }
+    }
+
+    private boolean isCommittedGeneration(long segmentGeneration) {
+        Path first = segmentPath(segmentGeneration, 1);
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            channel.read(header, 0);
+            return header.getInt(0) == SEGMENT_MAGIC && header.getInt(4) == 1;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Segment createSegment(long segmentGeneration, int id, boolean committed) throws IOException {
+        Segment segment = openSegment(segmentPath(segmentGeneration, id), id);
+        segment.buffer().putInt(0, SEGMENT_MAGIC);
+        segment.buffer().putInt(4, committed ? 1 : 0);
+        segment.writePosition = SEGMENT_HEADER_BYTES;
+        return segment;
+    }
+
+    private Path segmentPath(long segmentGeneration, int id) {
+        return directory.resolve(String.format(Locale.ROOT, "segment-%06d-%06d.dat", segmentGeneration, id));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Segment openSegment(Path path, int id) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_CAPACITY);
+            Segment segment = new Segment(path, id, buffer);
+            if (buffer.getInt(0) != SEGMENT_MAGIC) {
+                segment.writePosition = SEGMENT_CAPACITY;
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Copies the payload out of the mapping, which faults its pages in; the copy itself is discarded.
+     */
+    private static boolean prefault(Entry entry) {
+        try {
+            entry.segment().buffer().get(entry.payloadOffset(), new byte[entry.payloadLength()]);
+            return true;
+        } catch (IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    private List<LyricsLine> decodeLines(Entry entry) {
+        try {
+            ByteBuffer payload = entry.segment().buffer().slice(entry.payloadOffset(), entry.payloadLength());
+            int count = payload.getInt();
+            List<LyricsLine> lines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                double timeSeconds = payload.getDouble();
+                lines.add(new LyricsLine(timeSeconds, readString(payload)));
+            }
+            return lines;
+        } catch (Exception e) {
+            System.err.println("Lyrics cache read failed: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static byte[] encodeLines(List<LyricsLine> lyrics) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(lyrics.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(lyrics.size());
+        for (LyricsLine line : lyrics) {
+            out.writeDouble(line.timeSeconds());
+            writeString(out, line.text());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeTouch(String key, long lastPlayed, int playCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + key.length());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_TOUCH);
+        writeString(out, key);
+        out.writeLong(lastPlayed);
+        out.writeInt(playCount);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + key.length());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_DELETE);
+        writeString(out, key);
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(raw.length, 0xFFFF);
+        out.writeShort(length);
+        out.write(raw, 0, length);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] raw = new byte[length];
+        buffer.get(raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static long segmentGeneration(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    private static long segmentId(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(2)) : 0;
+    }
+
+    private static String key(String artist, String title) {
+        return normalize(artist) + "::" + normalize(title);
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final int id;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(Path path, int id, MappedByteBuffer buffer) {
+            this.path = path;
+            this.id = id;
+            this.buffer = buffer;
+        }
+
+        Path path() {
+            return path;
+        }
+
+        int id() {
+            return id;
+        }
+
+        MappedByteBuffer buffer() {
+            return buffer;
+        }
+    }
+
+    private record Entry(
+            Segment segment,
+            int recordLength,
+            int payloadOffset,
+            int payloadLength,
+            String artist,
+            String title,
+            long lastPlayed,
+            int playCount) {
+        Entry withStats(long newLastPlayed, int newPlayCount) {
+            return new Entry(segment, recordLength, payloadOffset, payloadLength, artist, title,
+                    newLastPlayed, newPlayCount);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package net.iozamudio.infrastructure.lyrics;
 
 import com.google.gson.Gson;
+import net.iozamudio.application.port.out.LyricsCachePort;
+import net.iozamudio.application.port.out.LyricsSearchPort;
 import net.iozamudio.model.LyricsLine;
+import net.iozamudio.model.LyricsSearchResult;
+import net.iozamudio.util.Metrics;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -10,16 +14,47 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class SqliteLyricsCache {
+public class SqliteLyricsCache implements LyricsCachePort, LyricsSearchPort {
     private static final int MAX_CACHE_ROWS = 400;
+    private static final int MAX_MATCHED_LINES = 8;
+    private static final String FTS_BODY_SQL =
+            "(SELECT group_concat(json_extract(value, '$.text'), char(10)) FROM json_each(%s.lyrics_json))";
+    private static final int MEMORY_TIER_CAPACITY = 128;
+    private static final String LOOKUPS = "lyrics_cache_lookups_total";
+    private static final String LOOKUPS_HELP = "Lyrics cache lookups by tier and result";
+    private static final Metrics.Histogram READ_DURATION = operationDuration("read");
+    private static final Metrics.Histogram WRITE_DURATION = operationDuration("write");
+    private static final Metrics.Histogram SEARCH_DURATION = operationDuration("search");
 
     private final String jdbcUrl;
     private final Path databasePath;
     private final Gson gson;
+    private final Map<String, List<LyricsLine>> memoryTier = Collections.synchronizedMap(
+            new LinkedHashMap<>(MEMORY_TIER_CAPACITY, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<LyricsLine>> eldest) {
+                    return size() > MEMORY_TIER_CAPACITY;
+                }
+            });
+    private final ExecutorService touchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LyricsCacheTouch");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public SqliteLyricsCache(Path dbFile) {
         try {
@@ -35,6 +70,7 @@ public class SqliteLyricsCache {
         this.jdbcUrl = "jdbc:sqlite:" + databasePath;
         this.gson = new Gson();
         initSchema();
+        Metrics.gauge("lyrics_cache_memory_entries", "Lyrics held in the in-memory tier", memoryTier::size);
         System.out.println("Lyrics cache DB: " + databasePath);
     }
 
@@ -43,6 +79,7 @@ public class SqliteLyricsCache {
         return new SqliteLyricsCache(dbPath);
     }
 
+    @Override
     public List<LyricsLine> getCachedLyrics(String artist, String title) {
         String artistNorm = normalize(artist);
         String titleNorm = normalize(title);
@@ -50,6 +87,22 @@ public class SqliteLyricsCache {
             return List.of();
         }
 
+        String key = memoryKey(artistNorm, titleNorm);
+        List<LyricsLine> inMemory = memoryTier.get(key);
+        if (inMemory != null) {
+            Metrics.counter(LOOKUPS, LOOKUPS_HELP, "tier", "memory", "result", "hit").inc();
+            System.out.println("Lyrics cache HIT (memory): " + artist + " - " + title);
+            touchExecutor.submit(() -> {
+                try (Connection connection = openConnection()) {
+                    touchEntry(connection, artistNorm, titleNorm);
+                } catch (Exception e) {
+                    System.err.println("Lyrics cache touch failed: " + e.getMessage());
+                }
+            });
+            return inMemory;
+        }
+
+        long startedAt = System.nanoTime();
         try (Connection connection = openConnection();
              PreparedStatement select = connection.prepareStatement(
                      "SELECT lyrics_json FROM lyrics_cache WHERE artist_norm = ? AND title_norm = ?")) {
@@ -58,22 +111,55 @@ public class SqliteLyricsCache {
 
             try (ResultSet rs = select.executeQuery()) {
                 if (!rs.next()) {
+                    Metrics.counter(LOOKUPS, LOOKUPS_HELP, "tier", "sqlite", "result", "miss").inc();
                     return List.of();
                 }
 
                 List<LyricsLine> lyrics = parseLyrics(rs.getString("lyrics_json"));
+                Metrics.counter(LOOKUPS, LOOKUPS_HELP, "tier", "sqlite", "result", lyrics.isEmpty() ? "miss" : "hit").inc();
                 if (!lyrics.isEmpty()) {
                     System.out.println("Lyrics cache HIT: " + artist + " - " + title);
+                    memoryTier.put(key, lyrics);
                 }
                 touchEntry(connection, artistNorm, titleNorm);
                 return lyrics;
             }
         } catch (Exception e) {
+            Metrics.counter(LOOKUPS, LOOKUPS_HELP, "tier", "sqlite", "result", "error").inc();
             System.err.println("Lyrics cache read failed: " + e.getMessage());
             return List.of();
+        } finally {
+            READ_DURATION.observeSince(startedAt);
         }
     }
 
+    @Override
+    public boolean hasCachedLyrics(String artist, String title) {
+        String artistNorm = normalize(artist);
+        String titleNorm = normalize(title);
+        if (artistNorm.isBlank() || titleNorm.isBlank()) {
+            return false;
+        }
+
+        if (memoryTier.containsKey(memoryKey(artistNorm, titleNorm))) {
+            return true;
+        }
+
+        try (Connection connection = openConnection();
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT 1 FROM lyrics_cache WHERE artist_norm = ? AND title_norm = ?")) {
+            select.setString(1, artistNorm);
+            select.setString(2, titleNorm);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next();
+            }
+        } catch (Exception e) {
+            System.err.println("Lyrics cache lookup failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
     public void saveLyrics(String artist, String title, List<LyricsLine> lyrics) {
         if (lyrics == null || lyrics.isEmpty()) {
             return;
@@ -87,6 +173,7 @@ public class SqliteLyricsCache {
 
         long now = System.currentTimeMillis();
         String json = gson.toJson(lyrics);
+        memoryTier.put(memoryKey(artistNorm, titleNorm), List.copyOf(lyrics));
 
         String upsert = """
                 INSERT INTO lyrics_cache (artist, title, artist_norm, title_norm, lyrics_json, last_played, updated_at, play_count)
@@ -100,6 +187,7 @@ public class SqliteLyricsCache {
                   play_count = lyrics_cache.play_count + 1
                 """;
 
+        long startedAt = System.nanoTime();
         try (Connection connection = openConnection();
              PreparedStatement statement = connection.prepareStatement(upsert)) {
             statement.setString(1, artist);
@@ -115,7 +203,210 @@ public class SqliteLyricsCache {
             pruneOldEntries(connection);
         } catch (Exception e) {
             System.err.println("Lyrics cache write failed: " + e.getMessage());
+        } finally {
+            WRITE_DURATION.observeSince(startedAt);
+        }
+    }
+
+    /**
+     * Loads the most played entries (and the last played one first) into the memory tier,
+     * decoding them in parallel on low-priority threads.
+     */
+    @Override
+    public WarmUpResult warmUp(int limit) {
+        long startedAt = System.nanoTime();
+        int effectiveLimit = Math.max(0, Math.min(limit, MEMORY_TIER_CAPACITY));
+        if (effectiveLimit == 0) {
+            return new WarmUpResult(0, 0, "", 0);
+        }
+
+        List<String[]> rows = new ArrayList<>();
+        String lastPlayed = "";
+        String lastPlayedKey = null;
+
+        try (Connection connection = openConnection()) {
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT artist, title, artist_norm, title_norm, lyrics_json FROM lyrics_cache ORDER BY last_played DESC LIMIT 1");
+                 ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    String key = memoryKey(rs.getString("artist_norm"), rs.getString("title_norm"));
+                    List<LyricsLine> lyrics = parseLyrics(rs.getString("lyrics_json"));
+                    if (!lyrics.isEmpty()) {
+                        memoryTier.put(key, lyrics);
+                        lastPlayed = rs.getString("artist") + " - " + rs.getString("title");
+                        lastPlayedKey = key;
+                    }
+                }
+            }
+
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT artist_norm, title_norm, lyrics_json FROM lyrics_cache ORDER BY play_count DESC, last_played DESC LIMIT ?")) {
+                select.setInt(1, effectiveLimit);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new String[] {
+                                memoryKey(rs.getString("artist_norm"), rs.getString("title_norm")),
+                                rs.getString("lyrics_json")
+                        });
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Lyrics cache warm-up read failed: " + e.getMessage());
+        }
+
+        AtomicInteger loaded = new AtomicInteger(lastPlayedKey == null ? 0 : 1);
+        // The last played track counts as a candidate too when it is not already one of the top rows.
+        int candidates = rows.size();
+        if (lastPlayedKey != null) {
+            String key = lastPlayedKey;
+            if (rows.stream().noneMatch(row -> row[0].equals(key))) {
+                candidates++;
+            }
+        }
+
+        List<Callable<Void>> decodeTasks = new ArrayList<>();
+        for (String[] row : rows) {
+            if (memoryTier.containsKey(row[0])) {
+                continue;
+            }
+            decodeTasks.add(() -> {
+                List<LyricsLine> lyrics = parseLyrics(row[1]);
+                if (!lyrics.isEmpty() && memoryTier.putIfAbsent(row[0], lyrics) == null) {
+                    loaded.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        if (!decodeTasks.isEmpty()) {
+            int workers = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+            ExecutorService decoders = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "LyricsCacheWarmUpDecoder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            try {
+                decoders.invokeAll(decodeTasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                decoders.shutdownNow();
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        return new WarmUpResult(loaded.get(), candidates, lastPlayed, elapsedMs);
+    }
+
+    /**
+     * Lets queued play-stat updates finish; every write is already committed to SQLite.
+     */
+    @Override
+    public void close() {
+        touchExecutor.shutdown();
+        try {
+            touchExecutor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public List<LyricsSearchResult> searchLyrics(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        StringBuilder match = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(tokens.get(i)).append('"');
+            if (i == tokens.size() - 1) {
+                match.append('*');
+            }
+        }
+
+        String searchSql = """
+                SELECT c.artist, c.title, c.lyrics_json, bm25(lyrics_fts, 4.0, 4.0, 1.0) AS rank
+                FROM lyrics_fts
+                JOIN lyrics_cache c ON c.rowid = lyrics_fts.rowid
+                WHERE lyrics_fts MATCH ?
+                ORDER BY rank
+                LIMIT ?
+                """;
+
+        List<LyricsSearchResult> results = new ArrayList<>();
+        long startedAt = System.nanoTime();
+        try (Connection connection = openConnection();
+             PreparedStatement select = connection.prepareStatement(searchSql)) {
+            select.setString(1, match.toString());
+            select.setInt(2, limit);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    List<LyricsLine> matched = matchLines(parseLyrics(rs.getString("lyrics_json")), tokens);
+                    results.add(new LyricsSearchResult(rs.getString("artist"), rs.getString("title"), -rs.getDouble("rank"), matched));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Lyrics search failed: " + e.getMessage());
+        } finally {
+            SEARCH_DURATION.observeSince(startedAt);
+        }
+        return results;
+    }
+
+    private List<LyricsLine> matchLines(List<LyricsLine> lyrics, List<String> tokens) {
+        List<LyricsLine> allTokens = new ArrayList<>();
+        List<LyricsLine> anyToken = new ArrayList<>();
+        String lastToken = tokens.get(tokens.size() - 1);
+
+        for (LyricsLine line : lyrics) {
+            List<String> words = tokenize(line.text());
+            int hits = 0;
+            for (String token : tokens) {
+                boolean prefix = token.equals(lastToken);
+                if (words.stream().anyMatch(word -> prefix ? word.startsWith(token) : word.equals(token))) {
+                    hits++;
+                }
+            }
+
+            if (hits == tokens.size()) {
+                allTokens.add(line);
+            } else if (hits > 0) {
+                anyToken.add(line);
+            }
+        }
+
+        List<LyricsLine> matched = allTokens.isEmpty() ? anyToken : allTokens;
+        return matched.size() > MAX_MATCHED_LINES ? matched.subList(0, MAX_MATCHED_LINES) : matched;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
         }
+        return tokens;
+    }
+
+    private static Metrics.Histogram operationDuration(String operation) {
+        return Metrics.histogram("lyrics_cache_operation_duration_ms", "SQLite lyrics cache operations",
+                Metrics.LATENCY_MS_BUCKETS, "operation", operation);
     }
 
     private Connection openConnection() throws Exception {
@@ -146,6 +437,63 @@ public class SqliteLyricsCache {
         } catch (Exception e) {
             throw new IllegalStateException("Cannot initialize lyrics cache", e);
         }
+
+        initSearchIndex();
+    }
+
+    private void initSearchIndex() {
+        String createFts = """
+                CREATE VIRTUAL TABLE IF NOT EXISTS lyrics_fts USING fts5(
+                    artist, title, body,
+                    tokenize = 'unicode61 remove_diacritics 2'
+                )
+                """;
+
+        String insertTrigger = """
+                CREATE TRIGGER IF NOT EXISTS lyrics_cache_fts_insert AFTER INSERT ON lyrics_cache BEGIN
+                    INSERT INTO lyrics_fts(rowid, artist, title, body)
+                    VALUES (new.rowid, new.artist, new.title, %s);
+                END
+                """.formatted(FTS_BODY_SQL.formatted("new"));
+
+        String updateTrigger = """
+                CREATE TRIGGER IF NOT EXISTS lyrics_cache_fts_update AFTER UPDATE OF artist, title, lyrics_json ON lyrics_cache BEGIN
+                    DELETE FROM lyrics_fts WHERE rowid = old.rowid;
+                    INSERT INTO lyrics_fts(rowid, artist, title, body)
+                    VALUES (new.rowid, new.artist, new.title, %s);
+                END
+                """.formatted(FTS_BODY_SQL.formatted("new"));
+
+        String deleteTrigger = """
+                CREATE TRIGGER IF NOT EXISTS lyrics_cache_fts_delete AFTER DELETE ON lyrics_cache BEGIN
+                    DELETE FROM lyrics_fts WHERE rowid = old.rowid;
+                END
+                """;
+
+        try (Connection connection = openConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(createFts);
+            statement.execute(insertTrigger);
+            statement.execute(updateTrigger);
+            statement.execute(deleteTrigger);
+
+            long cached = countRows(statement, "SELECT count(*) FROM lyrics_cache");
+            long indexed = countRows(statement, "SELECT count(*) FROM lyrics_fts");
+            if (cached != indexed) {
+                statement.execute("DELETE FROM lyrics_fts");
+                statement.execute("INSERT INTO lyrics_fts(rowid, artist, title, body) SELECT c.rowid, c.artist, c.title, "
+                        + FTS_BODY_SQL.formatted("c") + " FROM lyrics_cache c");
+                System.out.println("Lyrics search index rebuilt: " + cached + " tracks");
+            }
+        } catch (Exception e) {
+            System.err.println("Lyrics search index unavailable: " + e.getMessage());
+        }
+    }
+
+    private long countRows(Statement statement, String sql) throws Exception {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
     }
 
     private void touchEntry(Connection connection, String artistNorm, String titleNorm) {
@@ -166,6 +514,10 @@ public class SqliteLyricsCache {
         }
     }
 
+    /**
+     * Drops the least recently played rows past {@code MAX_CACHE_ROWS}, and the same keys from the memory tier
+     * so a pruned song is not still served from there.
+     */
     private void pruneOldEntries(Connection connection) {
         String pruneSql = """
                 DELETE FROM lyrics_cache
@@ -175,11 +527,16 @@ public class SqliteLyricsCache {
                     ORDER BY last_played DESC
                     LIMIT -1 OFFSET ?
                 )
+                RETURNING artist_norm, title_norm
                 """;
 
         try (PreparedStatement statement = connection.prepareStatement(pruneSql)) {
             statement.setInt(1, MAX_CACHE_ROWS);
-            statement.executeUpdate();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    memoryTier.remove(memoryKey(rs.getString("artist_norm"), rs.getString("title_norm")));
+                }
+            }
         } catch (Exception e) {
             System.err.println("Lyrics cache prune failed: " + e.getMessage());
         }
@@ -197,10 +554,14 @@ public class SqliteLyricsCache {
         }
     }
 
+    private String memoryKey(String artistNorm, String titleNorm) {
+        return artistNorm + "::" + titleNorm;
+    }
+
     private String normalize(String value) {
         if (value == null) {
             return "";
         }
         return value.trim().toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
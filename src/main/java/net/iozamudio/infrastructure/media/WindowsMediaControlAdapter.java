@@ -2,6 +2,7 @@ package net.iozamudio.infrastructure.media;
 
 import net.iozamudio.application.port.out.MediaControlPort;
 import net.iozamudio.util.MediaKeySimulator;
+import net.iozamudio.util.Metrics;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -61,9 +62,12 @@ public class WindowsMediaControlAdapter implements MediaControlPort {
 
     private boolean executeController(String command, String... args) {
         if (controllerExecutable == null || !controllerExecutable.exists()) {
+            countCommand(command, "unavailable");
             return false;
         }
 
+        long startedAt = System.nanoTime();
+        boolean succeeded = false;
         try {
             List<String> commandLine = new ArrayList<>();
             String path = controllerExecutable.getAbsolutePath();
@@ -84,13 +88,23 @@ public class WindowsMediaControlAdapter implements MediaControlPort {
                     .redirectErrorStream(true)
                     .start();
 
-            return process.waitFor(2, TimeUnit.SECONDS) && process.exitValue() == 0;
+            succeeded = process.waitFor(2, TimeUnit.SECONDS) && process.exitValue() == 0;
+            return succeeded;
         } catch (Exception e) {
             System.err.println("media-controller invocation failed: " + e.getMessage());
             return false;
+        } finally {
+            Metrics.histogram("media_control_command_duration_ms", "media-controller invocations",
+                    Metrics.LATENCY_MS_BUCKETS, "command", command).observeSince(startedAt);
+            countCommand(command, succeeded ? "ok" : "failed");
         }
     }
 
+    private static void countCommand(String command, String result) {
+        Metrics.counter("media_control_commands_total", "media-controller invocations by command and result",
+                "command", command, "result", result).inc();
+    }
+
     private File resolveControllerExecutable() {
         File appRoot = resolveAppRoot();
 
@@ -0,0 +1,442 @@
+package net.iozamudio.loadtest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.iozamudio.infrastructure.api.LocalApiServer;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load generator for the local API. Starts {@link LocalApiServer} on a {@link SyntheticPlayer}
+ * (or targets a running one with {@code --url}) and drives a mix of WebSocket subscribers, {@code /state}
+ * pollers and {@code /control} senders, then reports latency percentiles, broadcast lag and the server's
+ * heap and thread usage as published on {@code /metrics}.
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp "target/vinilplayer-1.0.0.jar:target/lib/*" \
+ *     net.iozamudio.loadtest.ApiLoadTest --ws=200 --pollers=20 --controllers=2 --seconds=60
+ * </pre>
+ */
+public final class ApiLoadTest {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Options options;
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final List<Thread> drivers = new ArrayList<>();
+    private final List<LatencySamples> pollSamples = new ArrayList<>();
+    private final List<LatencySamples> controlSamples = new ArrayList<>();
+    private final List<LatencySamples> lagSamples = new ArrayList<>();
+    private final LatencySamples connectSamples = new LatencySamples();
+    private final List<SubscriberClient> subscribers = new ArrayList<>();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder frameBytes = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final ServerStats serverStats = new ServerStats();
+    private long measureFromNanos;
+    private long stopAtNanos;
+
+    private ApiLoadTest(Options options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LocalApiServer server = null;
+        SyntheticPlayer player = null;
+        String baseUrl = options.url;
+
+        if (baseUrl == null) {
+            System.setProperty("java.awt.headless", "true");
+            System.setProperty("vinil.api.host", System.getProperty("vinil.api.host", "127.0.0.1"));
+            System.setProperty("vinil.api.port", String.valueOf(options.port));
+            // Every sender shares 127.0.0.1, so the per-client limit would only measure the limiter.
+            System.setProperty("vinil.api.control.rate", System.getProperty("vinil.api.control.rate", "100000"));
+            System.setProperty("vinil.api.control.burst", System.getProperty("vinil.api.control.burst", "100000"));
+
+            player = new SyntheticPlayer(options.trackSeconds, options.lyricsLineSeconds);
+            server = new LocalApiServer(player, player, player);
+            player.setOnChange(server::notifyStateChanged);
+            server.start();
+            startReaderTicker(server, options.tickMs);
+            baseUrl = "http://127.0.0.1:" + options.port + "/api/v1";
+        }
+
+        ApiLoadTest test = new ApiLoadTest(options, baseUrl.replaceAll("/+$", ""));
+        test.run();
+        test.report(player);
+
+        if (server != null) {
+            server.stop();
+        }
+        System.exit(0);
+    }
+
+    private void run() throws InterruptedException {
+        long startedAt = System.nanoTime();
+        measureFromNanos = startedAt + TimeUnit.SECONDS.toNanos(options.warmUpSeconds);
+        stopAtNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(options.seconds);
+
+        System.out.println("Load test against " + baseUrl + ": " + options.describe());
+        connectSubscribers();
+        for (int i = 0; i < options.pollers; i++) {
+            LatencySamples samples = new LatencySamples();
+            pollSamples.add(samples);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + options.pollPath))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            startDriver("LoadTestPoller-" + (i + 1), options.pollIntervalMs, request, samples);
+        }
+        for (int i = 0; i < options.controllers; i++) {
+            LatencySamples samples = new LatencySamples();
+            controlSamples.add(samples);
+            String action = options.actions.get(i % options.actions.size());
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/control"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .header("X-Api-Token", options.token)
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"action\":\"" + action + "\"}"))
+                    .build();
+            startDriver("LoadTestControl-" + (i + 1), options.controlIntervalMs, request, samples);
+        }
+
+        while (System.nanoTime() < stopAtNanos) {
+            serverStats.sample();
+            Thread.sleep(1_000);
+        }
+        for (Thread driver : drivers) {
+            driver.join(REQUEST_TIMEOUT.toMillis());
+        }
+        serverStats.sample();
+        for (SubscriberClient subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    private void connectSubscribers() throws InterruptedException {
+        String wsUrl = baseUrl.replaceFirst("^http", "ws") + "/ws?token="
+                + URLEncoder.encode(options.token, StandardCharsets.UTF_8) + (options.protocolV2 ? "&protocol=2" : "");
+        for (int i = 0; i < options.webSockets; i++) {
+            LatencySamples samples = new LatencySamples();
+            lagSamples.add(samples);
+            SubscriberClient client = new SubscriberClient(URI.create(wsUrl), samples);
+            subscribers.add(client);
+
+            long startedAt = System.nanoTime();
+            if (client.connectBlocking(5, TimeUnit.SECONDS)) {
+                connectSamples.record(System.nanoTime() - startedAt);
+            } else {
+                connectSamples.error();
+            }
+        }
+    }
+
+    /**
+     * Sends {@code request} at a fixed rate until the run ends; a slow response delays the next one instead of piling up.
+     */
+    private void startDriver(String name, long intervalMs, HttpRequest request, LatencySamples samples) {
+        Thread driver = new Thread(() -> {
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMs));
+            long next = System.nanoTime();
+            while (next < stopAtNanos) {
+                long startedAt = System.nanoTime();
+                boolean ok;
+                try {
+                    HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    int status = response.statusCode();
+                    if (status == 429) {
+                        rateLimited.increment();
+                    }
+                    ok = status == 200 || status == 304;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    ok = false;
+                }
+
+                if (startedAt >= measureFromNanos) {
+                    if (ok) {
+                        samples.record(System.nanoTime() - startedAt);
+                    } else {
+                        samples.error();
+                    }
+                }
+
+                next = Math.max(next + intervalNanos, System.nanoTime());
+                long sleepNanos = Math.min(next, stopAtNanos) - System.nanoTime();
+                if (sleepNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }, name);
+        driver.setDaemon(true);
+        drivers.add(driver);
+        driver.start();
+    }
+
+    private void report(SyntheticPlayer player) {
+        double seconds = options.seconds;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-20s %9s %9s %9s %9s %9s %9s %7s%n",
+                "scenario", "count", "per sec", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        printRow("GET " + options.pollPath, LatencySamples.summarize(pollSamples), seconds);
+        printRow("POST /control", LatencySamples.summarize(controlSamples), seconds);
+        printRow("WS broadcast lag", LatencySamples.summarize(lagSamples), seconds);
+        printRow("WS connect", LatencySamples.summarize(List.of(connectSamples)), Double.NaN);
+
+        System.out.printf(Locale.ROOT, "WebSocket frames: %d (%.1f KB/s across %d clients)%n",
+                frames.sum(), frameBytes.sum() / 1024.0 / seconds, subscribers.size());
+        if (rateLimited.sum() > 0) {
+            System.out.println("Control requests rejected with 429: " + rateLimited.sum());
+        }
+        System.out.printf(Locale.ROOT, "Server heap used: %.1f MB (peak %.1f MB), threads: %.0f (peak %.0f)%n",
+                serverStats.heapBytes / 1048576.0, serverStats.peakHeapBytes / 1048576.0,
+                serverStats.threads, serverStats.peakThreads);
+        System.out.printf(Locale.ROOT, "Server dropped WebSocket frames: %.0f, shed requests: %.0f%n",
+                serverStats.droppedFrames, serverStats.shedRequests);
+        if (player != null) {
+            System.out.println("Synthetic player commands executed: " + player.commandCount()
+                    + " (server ran in this JVM, so heap and threads include the load drivers)");
+        }
+    }
+
+    private static void printRow(String name, LatencySamples.Summary summary, double seconds) {
+        System.out.printf(Locale.ROOT, "%-20s %9d %9s %9.2f %9.2f %9.2f %9.2f %7d%n",
+                name, summary.count(), Double.isNaN(seconds) ? "-" : String.format(Locale.ROOT, "%.1f", summary.count() / seconds),
+                summary.percentileMs(50), summary.percentileMs(99), summary.percentileMs(99.9),
+                summary.maxMs(), summary.errors());
+    }
+
+    /**
+     * Mirrors {@code MediaPollingService}: the reader reports the current media every {@code tickMs}.
+     */
+    private static void startReaderTicker(LocalApiServer server, long tickMs) {
+        Thread ticker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                server.notifyStateChanged();
+                try {
+                    Thread.sleep(tickMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "LoadTestReader");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Measures lag as receive time minus the {@code timestamp} the server stamped on the frame,
+     * so it is only meaningful when both clocks agree (same machine).
+     */
+    private final class SubscriberClient extends WebSocketClient {
+        private final LatencySamples lag;
+
+        SubscriberClient(URI uri, LatencySamples lag) {
+            super(uri);
+            this.lag = lag;
+            setConnectionLostTimeout(0);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            long receivedAtMs = System.currentTimeMillis();
+            if (System.nanoTime() < measureFromNanos) {
+                return;
+            }
+            frames.increment();
+            frameBytes.add(message.length());
+
+            String timestamp = frameTimestamp(message);
+            if (timestamp != null) {
+                lag.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, receivedAtMs - Instant.parse(timestamp).toEpochMilli())));
+            }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            if (remote && System.nanoTime() < stopAtNanos) {
+                lag.error();
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            lag.error();
+        }
+
+        private String frameTimestamp(String message) {
+            try {
+                JsonObject frame = JsonParser.parseString(message).getAsJsonObject();
+                JsonElement type = frame.get("type");
+                String kind = type == null ? "" : type.getAsString();
+                JsonObject holder = switch (kind) {
+                    case "state", "snapshot" -> frame.getAsJsonObject("state");
+                    case "patch" -> frame;
+                    default -> null;
+                };
+                JsonElement timestamp = holder == null ? null : holder.get("timestamp");
+                return timestamp == null ? null : timestamp.getAsString();
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Latest and peak values of the server's own gauges, read from {@code /metrics} once per second.
+     */
+    private final class ServerStats {
+        private double heapBytes;
+        private double peakHeapBytes;
+        private double threads;
+        private double peakThreads;
+        private double droppedFrames;
+        private double shedRequests;
+
+        void sample() {
+            Map<String, Double> metrics;
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/metrics")).timeout(REQUEST_TIMEOUT).GET().build();
+                metrics = parse(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                return;
+            }
+
+            heapBytes = metrics.getOrDefault("jvm_memory_heap_used_bytes", 0.0);
+            threads = metrics.getOrDefault("jvm_threads_current", 0.0);
+            peakHeapBytes = Math.max(peakHeapBytes, heapBytes);
+            peakThreads = Math.max(peakThreads, threads);
+            droppedFrames = metrics.getOrDefault("state_socket_frames_total{outcome=\"dropped\"}", 0.0);
+            shedRequests = metrics.getOrDefault("api_executor_shed_total", 0.0);
+        }
+
+        private static Map<String, Double> parse(String text) {
+            Map<String, Double> values = new HashMap<>();
+            for (String line : text.split("\n")) {
+                int space = line.lastIndexOf(' ');
+                if (line.startsWith("#") || space <= 0) {
+                    continue;
+                }
+                try {
+                    values.put(line.substring(0, space), Double.parseDouble(line.substring(space + 1)));
+                } catch (NumberFormatException ignored) {
+                    // +Inf/NaN samples are not needed here.
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * {@code --name=value} arguments, in the style of the desktop launcher's {@code --fade-ms=}.
+     */
+    private record Options(
+            String url,
+            int port,
+            String token,
+            int webSockets,
+            boolean protocolV2,
+            int pollers,
+            long pollIntervalMs,
+            String pollPath,
+            int controllers,
+            long controlIntervalMs,
+            List<String> actions,
+            long seconds,
+            long warmUpSeconds,
+            long tickMs,
+            double trackSeconds,
+            double lyricsLineSeconds) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                int equals = arg.indexOf('=');
+                values.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals), equals < 0 ? "true" : arg.substring(equals + 1));
+            }
+
+            String protocol = values.getOrDefault("ws-protocol", "v1").toLowerCase(Locale.ROOT);
+            if (!protocol.equals("v1") && !protocol.equals("v2")) {
+                throw new IllegalArgumentException("--ws-protocol must be v1 or v2");
+            }
+            List<String> actions = List.of(values.getOrDefault("actions", "playpause").split(","));
+
+            return new Options(
+                    values.get("url"),
+                    intValue(values, "port", 18750),
+                    values.getOrDefault("token", System.getProperty("vinil.api.token", "token-prueba")),
+                    intValue(values, "ws", 20),
+                    protocol.equals("v2"),
+                    intValue(values, "pollers", 10),
+                    intValue(values, "poll-ms", 250),
+                    values.getOrDefault("poll-path", "/state"),
+                    intValue(values, "controllers", 1),
+                    intValue(values, "control-ms", 1000),
+                    actions,
+                    Math.max(1, intValue(values, "seconds", 30)),
+                    intValue(values, "warmup-seconds", 3),
+                    Math.max(1, intValue(values, "tick-ms", 500)),
+                    Math.max(1, intValue(values, "track-seconds", 30)),
+                    Math.max(0.25, Double.parseDouble(values.getOrDefault("lyrics-line-seconds", "2.5"))));
+        }
+
+        private static int intValue(Map<String, String> values, String name, int defaultValue) {
+            String raw = values.get(name);
+            if (raw == null) {
+                return defaultValue;
+            }
+            try {
+                return Math.max(0, Integer.parseInt(raw.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--" + name + " must be an integer");
+            }
+        }
+
+        String describe() {
+            return webSockets + " WebSocket subscribers (" + (protocolV2 ? "v2" : "v1") + "), "
+                    + pollers + " pollers every " + pollIntervalMs + " ms, "
+                    + controllers + " control senders every " + controlIntervalMs + " ms " + actions + ", "
+                    + seconds + " s after " + warmUpSeconds + " s of warm-up";
+        }
+    }
+}
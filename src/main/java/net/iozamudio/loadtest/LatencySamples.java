@@ -0,0 +1,69 @@
+package net.iozamudio.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Raw latency samples in nanoseconds. Each driver owns one instance, so recording is uncontended;
+ * samples are merged and sorted only for the final report.
+ */
+final class LatencySamples {
+    private long[] values = new long[1024];
+    private int size;
+    private long errors;
+
+    synchronized void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    synchronized void error() {
+        errors++;
+    }
+
+    static Summary summarize(List<LatencySamples> samples) {
+        long errors = 0;
+        int total = 0;
+        for (LatencySamples sample : samples) {
+            synchronized (sample) {
+                total += sample.size;
+                errors += sample.errors;
+            }
+        }
+
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencySamples sample : samples) {
+            synchronized (sample) {
+                int count = Math.min(sample.size, total - offset);
+                System.arraycopy(sample.values, 0, merged, offset, count);
+                offset += count;
+            }
+        }
+        Arrays.sort(merged, 0, offset);
+        return new Summary(Arrays.copyOf(merged, offset), errors);
+    }
+
+    record Summary(long[] sorted, long errors) {
+        int count() {
+            return sorted.length;
+        }
+
+        /**
+         * Nearest-rank percentile in milliseconds, or {@code NaN} without samples.
+         */
+        double percentileMs(double percentile) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1e6;
+        }
+
+        double maxMs() {
+            return sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1] / 1e6;
+        }
+    }
+}
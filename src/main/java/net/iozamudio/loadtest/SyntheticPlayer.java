@@ -0,0 +1,173 @@
+package net.iozamudio.loadtest;
+
+import net.iozamudio.application.port.in.LyricsUseCase;
+import net.iozamudio.application.port.in.MediaControlUseCase;
+import net.iozamudio.model.LyricsLine;
+import net.iozamudio.model.LyricsSearchResult;
+import net.iozamudio.model.MediaInfo;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Stands in for the media reader and controller: a playlist that advances on its own, answers
+ * playpause/next/previous/seek like a real session and has synced lyrics for every track.
+ * Needs no Windows component, so the API can be loaded on any headless JVM.
+ */
+final class SyntheticPlayer implements Supplier<MediaInfo>, MediaControlUseCase, LyricsUseCase {
+    private static final int ARTWORK_VARIANTS = 8;
+    private static final int ARTWORK_SIZE = 300;
+
+    private final double trackSeconds;
+    private final double lyricsLineSeconds;
+    private final Map<Integer, String> artwork = new ConcurrentHashMap<>();
+    private final LongAdder commands = new LongAdder();
+    private volatile Runnable onChange = () -> { };
+
+    private int track;
+    private boolean playing = true;
+    private double positionAtMark;
+    private long markNanos = System.nanoTime();
+
+    SyntheticPlayer(double trackSeconds, double lyricsLineSeconds) {
+        this.trackSeconds = trackSeconds;
+        this.lyricsLineSeconds = lyricsLineSeconds;
+    }
+
+    /**
+     * Called after every command, as {@code MediaPollingService} does when the reader reports a change.
+     */
+    void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    long commandCount() {
+        return commands.sum();
+    }
+
+    @Override
+    public MediaInfo get() {
+        int current;
+        boolean isPlaying;
+        double position;
+        synchronized (this) {
+            advanceTrackIfEnded();
+            current = track;
+            isPlaying = playing;
+            position = position();
+        }
+        return new MediaInfo("Synthetic Artist " + (current % 17), "Track " + current,
+                isPlaying ? "PLAYING" : "PAUSED", position, trackSeconds, artwork(current));
+    }
+
+    @Override
+    public synchronized void next() {
+        changeTrack(track + 1);
+    }
+
+    @Override
+    public synchronized void previous() {
+        changeTrack(Math.max(0, track - 1));
+    }
+
+    @Override
+    public void playPause() {
+        synchronized (this) {
+            positionAtMark = position();
+            markNanos = System.nanoTime();
+            playing = !playing;
+        }
+        commandExecuted();
+    }
+
+    @Override
+    public void seekToSeconds(double seconds) {
+        synchronized (this) {
+            positionAtMark = Math.max(0, Math.min(trackSeconds, seconds));
+            markNanos = System.nanoTime();
+        }
+        commandExecuted();
+    }
+
+    @Override
+    public void openCurrentInBrowser() {
+        commands.increment();
+    }
+
+    @Override
+    public List<LyricsLine> getSyncedLyrics(String artist, String title) {
+        List<LyricsLine> lines = new ArrayList<>();
+        for (double time = 0; time < trackSeconds; time += lyricsLineSeconds) {
+            lines.add(new LyricsLine(time, title + " line " + lines.size()));
+        }
+        return lines;
+    }
+
+    @Override
+    public List<LyricsSearchResult> searchLyrics(String query, int limit) {
+        return List.of();
+    }
+
+    private void changeTrack(int next) {
+        track = next;
+        positionAtMark = 0;
+        markNanos = System.nanoTime();
+        commandExecuted();
+    }
+
+    private void commandExecuted() {
+        commands.increment();
+        onChange.run();
+    }
+
+    private void advanceTrackIfEnded() {
+        double position = position();
+        if (position < trackSeconds) {
+            return;
+        }
+
+        int skipped = (int) (position / trackSeconds);
+        track += skipped;
+        positionAtMark = position - skipped * trackSeconds;
+        markNanos = System.nanoTime();
+    }
+
+    private double position() {
+        return playing ? positionAtMark + (System.nanoTime() - markNanos) / 1e9 : positionAtMark;
+    }
+
+    /**
+     * A handful of distinct covers, so track changes exercise the artwork cache and pipeline.
+     */
+    private String artwork(int track) {
+        return artwork.computeIfAbsent(track % ARTWORK_VARIANTS, variant -> {
+            BufferedImage image = new BufferedImage(ARTWORK_SIZE, ARTWORK_SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setPaint(new GradientPaint(0, 0, Color.getHSBColor(variant / (float) ARTWORK_VARIANTS, 0.7f, 0.9f),
+                    ARTWORK_SIZE, ARTWORK_SIZE, Color.DARK_GRAY));
+            graphics.fillRect(0, 0, ARTWORK_SIZE, ARTWORK_SIZE);
+            graphics.dispose();
+
+            ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(image, "jpg", jpeg);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return Base64.getEncoder().encodeToString(jpeg.toByteArray());
+        });
+    }
+}
@@ -0,0 +1,12 @@
+package net.iozamudio.model;
+
+public record LyricsPrefetchProgress(
+        String jobId,
+        int total,
+        int completed,
+        int fetched,
+        int alreadyCached,
+        int alreadyInFlight,
+        int notFound,
+        boolean done) {
+}
@@ -0,0 +1,11 @@
+package net.iozamudio.model;
+
+import java.util.List;
+
+public record LyricsSearchResult(String artist, String title, double score, List<LyricsLine> matchedLines) {
+    public LyricsSearchResult {
+        artist = artist != null ? artist : "";
+        title = title != null ? title : "";
+        matchedLines = matchedLines != null ? List.copyOf(matchedLines) : List.of();
+    }
+}
@@ -0,0 +1,18 @@
+package net.iozamudio.model;
+
+import java.util.Locale;
+
+public record TrackRef(String artist, String title) {
+    public TrackRef {
+        artist = artist != null ? artist.trim() : "";
+        title = title != null ? title.trim() : "";
+    }
+
+    public boolean isEmpty() {
+        return artist.isEmpty() || title.isEmpty();
+    }
+
+    public String key() {
+        return artist.toLowerCase(Locale.ROOT) + "::" + title.toLowerCase(Locale.ROOT);
+    }
+}
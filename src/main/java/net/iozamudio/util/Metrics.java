@@ -0,0 +1,248 @@
+package net.iozamudio.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide metrics, scraped from {@code /api/v1/metrics} in the Prometheus text format.
+ * Recording never takes a lock: counters and histogram buckets are adders, and gauges are
+ * suppliers that are only read while scraping. Labels are passed as alternating name/value pairs.
+ */
+public final class Metrics {
+    public static final double[] LATENCY_MS_BUCKETS = {1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final Map<String, Family> FAMILIES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).series(labels, Counter::new);
+    }
+
+    public static Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM).series(labels, () -> new Histogram(buckets));
+    }
+
+    /**
+     * Registers a value read at scrape time; registering the same series again replaces the supplier.
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).replace(labels, new Gauge(value));
+    }
+
+    /**
+     * Like {@link #gauge}, for a monotonic total that is already tracked elsewhere.
+     */
+    public static void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).replace(labels, new Gauge(value));
+    }
+
+    /**
+     * Every family in the text exposition format (version 0.0.4), sorted by name.
+     */
+    public static String scrape() {
+        List<Family> families = new ArrayList<>(FAMILIES.values());
+        families.sort((a, b) -> a.name.compareTo(b.name));
+
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families) {
+            family.write(out);
+        }
+        return out.toString();
+    }
+
+    private static Family family(String name, String help, Type type) {
+        Family family = FAMILIES.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.text);
+        }
+        return family;
+    }
+
+    private static String labelKey(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+
+        StringBuilder key = new StringBuilder(32).append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                switch (ch) {
+                    case '\\' -> key.append("\\\\");
+                    case '"' -> key.append("\\\"");
+                    case '\n' -> key.append("\\n");
+                    default -> key.append(ch);
+                }
+            }
+            key.append('"');
+        }
+        return key.append('}').toString();
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private interface Series {
+        void write(StringBuilder out, String name, String labels);
+    }
+
+    public static final class Counter implements Series {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            out.append(name).append(labels).append(' ').append(value.sum()).append('\n');
+        }
+    }
+
+    /**
+     * Fixed upper bounds; each observation increments exactly one bucket, cumulated when scraped.
+     */
+    public static final class Histogram implements Series {
+        private final double[] bounds;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(double[] bounds) {
+            this.bounds = bounds.clone();
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            int index = 0;
+            while (index < bounds.length && value > bounds[index]) {
+                index++;
+            }
+            buckets[index].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        /**
+         * Records the milliseconds elapsed since {@code startedAtNanos} ({@link System#nanoTime()}).
+         */
+        public void observeSince(long startedAtNanos) {
+            observe((System.nanoTime() - startedAtNanos) / 1_000_000.0);
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            String inner = labels.isEmpty() ? "" : labels.substring(1, labels.length() - 1) + ",";
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < bounds.length ? number(bounds[i]) : "+Inf";
+                out.append(name).append("_bucket{").append(inner).append("le=\"").append(le).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            out.append(name).append("_sum").append(labels).append(' ').append(number(sum.sum())).append('\n');
+            out.append(name).append("_count").append(labels).append(' ').append(count.sum()).append('\n');
+        }
+    }
+
+    private static final class Gauge implements Series {
+        private final DoubleSupplier value;
+
+        Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            double current;
+            try {
+                current = value.getAsDouble();
+            } catch (RuntimeException e) {
+                return;
+            }
+            out.append(name).append(labels).append(' ').append(number(current)).append('\n');
+        }
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Series series(String[] labels, Supplier<Series> factory) {
+            String key = labelKey(labels);
+            Series existing = series.get(key);
+            return existing != null ? existing : series.computeIfAbsent(key, ignored -> factory.get());
+        }
+
+        void replace(String[] labels, Series value) {
+            series.put(labelKey(labels), value);
+        }
+
+        void write(StringBuilder out) {
+            if (series.isEmpty()) {
+                return;
+            }
+
+            out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type.text).append('\n');
+            List<String> keys = new ArrayList<>(series.keySet());
+            keys.sort(null);
+            for (String key : keys) {
+                series.get(key).write(out, name, key);
+            }
+        }
+    }
+}
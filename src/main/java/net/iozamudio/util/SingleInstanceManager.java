@@ -1,23 +1,50 @@
 package net.iozamudio.util;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
+/**
+ * Keeps a single running instance. The first launch holds a lock file and listens on a Unix domain socket;
+ * later launches forward their command-line actions to it ({@code --next}, {@code --seek=42}, ... or just
+ * {@code show}) and exit instead of starting up.
+ *
+ * <p>Wire format: one command per line ({@code show}, {@code playpause}, {@code seek 42.5}); the primary
+ * answers each line with {@code OK} or {@code ERR <reason>}.
+ */
 public class SingleInstanceManager implements AutoCloseable {
-    private static final int PORT = 44567;
-    private static final String SHOW_COMMAND = "SHOW";
+    private static final Path DIRECTORY = Path.of(System.getProperty("user.home"), ".vinilplayer");
+    private static final Path LOCK_FILE = DIRECTORY.resolve("instance.lock");
+    private static final Path SOCKET_FILE = DIRECTORY.resolve("instance.sock");
 
-    private final ServerSocket serverSocket;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ServerSocketChannel serverChannel;
     private final ExecutorService listenerExecutor;
 
-    private SingleInstanceManager(ServerSocket serverSocket) {
-        this.serverSocket = serverSocket;
+    private SingleInstanceManager(FileChannel lockChannel, FileLock lock, ServerSocketChannel serverChannel) {
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.serverChannel = serverChannel;
         this.listenerExecutor = Executors.newSingleThreadExecutor(runnable -> {
             Thread thread = new Thread(runnable, "VinilPlayer-SingleInstanceListener");
             thread.setDaemon(true);
@@ -25,34 +52,131 @@ public class SingleInstanceManager implements AutoCloseable {
         });
     }
 
+    public enum Command {
+        SHOW,
+        PLAYPAUSE,
+        NEXT,
+        PREVIOUS,
+        SEEK,
+        FOCUSSOURCE;
+
+        private final String wireName = name().toLowerCase(Locale.ROOT);
+
+        static Command parse(String name) {
+            for (Command command : values()) {
+                if (command.wireName.equals(name)) {
+                    return command;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @param argument seconds for {@link Command#SEEK}, otherwise {@code null}
+     */
+    public record Request(Command command, String argument) {
+        String toLine() {
+            return argument == null ? command.wireName : command.wireName + " " + argument;
+        }
+    }
+
+    /**
+     * Returns the manager when this process is the first instance, or {@code null} when another one holds the lock.
+     */
     public static SingleInstanceManager tryAcquirePrimary() {
+        FileChannel lockChannel = null;
         try {
-            ServerSocket socket = new ServerSocket(PORT, 10, InetAddress.getLoopbackAddress());
-            return new SingleInstanceManager(socket);
-        } catch (Exception ignored) {
+            Files.createDirectories(DIRECTORY);
+            lockChannel = FileChannel.open(LOCK_FILE, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = lockChannel.tryLock();
+            if (lock == null) {
+                lockChannel.close();
+                return null;
+            }
+            return new SingleInstanceManager(lockChannel, lock, openCommandSocket());
+        } catch (Exception e) {
+            System.err.println("Single instance lock unavailable: " + e.getMessage());
+            closeQuietly(lockChannel);
             return null;
         }
     }
 
-    public static boolean signalExistingInstanceToShow() {
-        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), PORT);
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
-            writer.write(SHOW_COMMAND);
-            writer.newLine();
-            writer.flush();
-            return true;
-        } catch (Exception ignored) {
+    /**
+     * The lock proves no other primary is alive, so a socket file left by a crash can be replaced.
+     */
+    private static ServerSocketChannel openCommandSocket() {
+        try {
+            Files.deleteIfExists(SOCKET_FILE);
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.bind(UnixDomainSocketAddress.of(SOCKET_FILE));
+            return channel;
+        } catch (Exception e) {
+            System.err.println("Single instance socket unavailable, later launches cannot be forwarded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Commands requested on the command line; {@code show} when there are none.
+     */
+    public static List<Request> requestsFromArgs(String[] args) {
+        List<Request> requests = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                continue;
+            }
+
+            String option = arg.substring(2).toLowerCase(Locale.ROOT);
+            int equals = option.indexOf('=');
+            Command command = Command.parse(equals < 0 ? option : option.substring(0, equals));
+            if (command == Command.SEEK && equals > 0) {
+                requests.add(new Request(command, option.substring(equals + 1)));
+            } else if (command != null && command != Command.SEEK) {
+                requests.add(new Request(command, null));
+            }
+        }
+        return requests.isEmpty() ? List.of(new Request(Command.SHOW, null)) : requests;
+    }
+
+    /**
+     * Sends this launch's commands to the running instance; {@code false} when it could not be reached
+     * or rejected any of them.
+     */
+    public static boolean forwardToPrimary(String[] args) {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(SOCKET_FILE));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8))) {
+            boolean accepted = true;
+            for (Request request : requestsFromArgs(args)) {
+                writer.write(request.toLine());
+                writer.newLine();
+                writer.flush();
+
+                String reply = reader.readLine();
+                if (reply == null || !reply.equals("OK")) {
+                    System.err.println("Running instance rejected '" + request.toLine() + "': " + reply);
+                    accepted = false;
+                }
+            }
+            return accepted;
+        } catch (Exception e) {
+            System.err.println("Cannot reach the running instance: " + e.getMessage());
             return false;
         }
     }
 
-    public void startListening(Runnable onShowRequested) {
+    public void startListening(Consumer<Request> onRequest) {
+        if (serverChannel == null) {
+            return;
+        }
+
         listenerExecutor.submit(() -> {
-            while (!serverSocket.isClosed()) {
-                try (Socket ignored = serverSocket.accept()) {
-                    onShowRequested.run();
+            while (serverChannel.isOpen()) {
+                try (SocketChannel channel = serverChannel.accept()) {
+                    serve(channel, onRequest);
                 } catch (Exception ignoredAccept) {
-                    if (serverSocket.isClosed()) {
+                    if (!serverChannel.isOpen()) {
                         break;
                     }
                 }
@@ -60,11 +184,66 @@ public class SingleInstanceManager implements AutoCloseable {
         });
     }
 
+    private static void serve(SocketChannel channel, Consumer<Request> onRequest) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            writer.write(handleLine(line.trim(), onRequest));
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    private static String handleLine(String line, Consumer<Request> onRequest) {
+        String[] parts = line.split("\\s+", 2);
+        Command command = Command.parse(parts[0].toLowerCase(Locale.ROOT));
+        if (command == null) {
+            return "ERR unknown command";
+        }
+
+        String argument = parts.length > 1 ? parts[1] : null;
+        if (command == Command.SEEK) {
+            try {
+                if (argument == null || !(Double.parseDouble(argument) >= 0)) {
+                    return "ERR seek needs a position in seconds";
+                }
+            } catch (NumberFormatException e) {
+                return "ERR seek needs a position in seconds";
+            }
+        }
+
+        try {
+            onRequest.accept(new Request(command, command == Command.SEEK ? argument : null));
+            return "OK";
+        } catch (RuntimeException e) {
+            return "ERR " + (e.getMessage() == null ? "command failed" : e.getMessage());
+        }
+    }
+
     @Override
     public void close() {
         listenerExecutor.shutdownNow();
+        if (serverChannel != null) {
+            closeQuietly(serverChannel);
+            try {
+                Files.deleteIfExists(SOCKET_FILE);
+            } catch (IOException ignored) {
+            }
+        }
+        try {
+            lock.release();
+        } catch (IOException ignored) {
+        }
+        closeQuietly(lockChannel);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
         try {
-            serverSocket.close();
+            closeable.close();
         } catch (Exception ignored) {
         }
     }